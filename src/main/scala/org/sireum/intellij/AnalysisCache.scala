@@ -0,0 +1,129 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.util.concurrent.atomic.AtomicLong
+
+object AnalysisCache {
+
+  final case class ConsoleSnapshot(level: org.sireum.message.Level.Type, column: Int, message: String) {
+    def size: Long = 32 + 2L * message.length
+  }
+
+  final case class SummoningSnapshot(messageHeader: String, info: String, offset: Int, ok: Boolean, message: String) {
+    def size: Long = 48 + 2L * (messageHeader.length + info.length + message.length)
+  }
+
+  final case class HintSnapshot(kindOpt: Option[org.sireum.server.protocol.Logika.Verify.Info.Kind.Type],
+                                messageHeader: String, offset: Int, message: String, terminated: Boolean,
+                                isError: Boolean) {
+    def size: Long = 48 + 2L * (messageHeader.length + message.length)
+  }
+
+  final case class LineSnapshot(consoles: Vector[ConsoleSnapshot],
+                                summonings: Vector[SummoningSnapshot],
+                                hints: Vector[HintSnapshot]) {
+    lazy val size: Long = 64 + consoles.map(_.size).sum + summonings.map(_.size).sum + hints.map(_.size).sum
+  }
+
+  final case class Entry(lines: Map[Int, LineSnapshot]) {
+    lazy val size: Long = 64 + lines.valuesIterator.map(_.size + 16).sum
+  }
+}
+
+final class AnalysisCache(maxEntries: => Int, maxBytes: => Long) {
+
+  import AnalysisCache._
+
+  private val map = new java.util.LinkedHashMap[(String, Long), Entry](16, 0.75f, true)
+  private var bytes: Long = 0
+  val hits: AtomicLong = new AtomicLong
+  val misses: AtomicLong = new AtomicLong
+  val evictions: AtomicLong = new AtomicLong
+
+  def get(key: (String, Long)): Option[Entry] = synchronized {
+    val e = map.get(key)
+    if (e == null) {
+      misses.incrementAndGet()
+      None
+    } else {
+      hits.incrementAndGet()
+      Some(e)
+    }
+  }
+
+  def merge(key: (String, Long), lines: Map[Int, LineSnapshot]): Unit = synchronized {
+    if (lines.isEmpty) return
+    val old = map.remove(key)
+    val entry = if (old == null) Entry(lines) else {
+      bytes -= old.size
+      Entry(old.lines ++ lines)
+    }
+    map.put(key, entry)
+    bytes += entry.size
+    trim()
+  }
+
+  def evictPath(path: String): Unit = evictIf(_._1 == path)
+
+  def evictPathPrefix(prefix: String): Unit = evictIf(_._1.startsWith(prefix))
+
+  def clear(): Unit = synchronized {
+    map.clear()
+    bytes = 0
+  }
+
+  def size: Int = synchronized(map.size)
+
+  def sizeInBytes: Long = synchronized(bytes)
+
+  def stats: String = {
+    val mb = sizeInBytes / 1024d / 1024d
+    f"Client cache: $size entries ($mb%.2f MB), ${hits.get} hits, ${misses.get} misses, ${evictions.get} evictions"
+  }
+
+  private def evictIf(p: ((String, Long)) => Boolean): Unit = synchronized {
+    val it = map.entrySet.iterator
+    while (it.hasNext) {
+      val e = it.next()
+      if (p(e.getKey)) {
+        bytes -= e.getValue.size
+        it.remove()
+        evictions.incrementAndGet()
+      }
+    }
+  }
+
+  private def trim(): Unit = {
+    val it = map.entrySet.iterator
+    while (it.hasNext && (map.size > maxEntries || bytes > maxBytes)) {
+      val e = it.next()
+      bytes -= e.getValue.size
+      it.remove()
+      evictions.incrementAndGet()
+    }
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.io.Closeable
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, StandardCopyOption, StandardOpenOption}
+import java.util.concurrent.atomic.{AtomicLong, AtomicLongArray, AtomicReferenceArray}
+import java.util.concurrent.locks.LockSupport
+
+object ClientLog {
+
+  object Kind extends Enumeration {
+    val Request, Response, Note = Value
+  }
+
+  final case class Entry(time: Long, kind: Kind.Value, content: String, truncated: Boolean)
+
+  val defaultCapacity: Int = 8192
+  val defaultGenerations: Int = 4
+  val maxBatchBytes: Int = 256 * 1024
+  val failureReportIntervalInMs: Long = 60 * 1000
+
+  private lazy val logger = com.intellij.openapi.diagnostic.Logger.getInstance(classOf[ClientLog])
+
+  // One JSON object per line, e.g. {"t":1700000000000,"k":"Request","n":123,"x":false,"c":"..."}
+  def encode(e: Entry, sb: java.lang.StringBuilder): Unit = {
+    sb.append("{\"t\":").append(e.time).append(",\"k\":\"").append(e.kind).append("\",\"n\":").
+      append(e.content.length).append(",\"x\":").append(e.truncated).append(",\"c\":\"")
+    for (i <- 0 until e.content.length) {
+      e.content.charAt(i) match {
+        case '"' => sb.append("\\\"")
+        case '\\' => sb.append("\\\\")
+        case '\n' => sb.append("\\n")
+        case '\r' => sb.append("\\r")
+        case '\t' => sb.append("\\t")
+        case c if c < ' ' => sb.append('\\').append('u').append(String.format("%04x", Integer.valueOf(c.toInt)))
+        case c => sb.append(c)
+      }
+    }
+    sb.append("\"}\n")
+  }
+
+  def decode(line: String): Option[Entry] = {
+    try {
+      val tEnd = line.indexOf(',', 5)
+      val time = line.substring(5, tEnd).toLong
+      val kStart = line.indexOf("\"k\":\"", tEnd) + 5
+      val kind = Kind.withName(line.substring(kStart, line.indexOf('"', kStart)))
+      val xStart = line.indexOf("\"x\":", kStart) + 4
+      val truncated = line.startsWith("true", xStart)
+      val cStart = line.indexOf("\"c\":\"", xStart) + 5
+      val sb = new java.lang.StringBuilder
+      var i = cStart
+      val end = line.lastIndexOf("\"}")
+      while (i < end) {
+        line.charAt(i) match {
+          case '\\' =>
+            i += 1
+            line.charAt(i) match {
+              case 'n' => sb.append('\n')
+              case 'r' => sb.append('\r')
+              case 't' => sb.append('\t')
+              case 'u' =>
+                sb.append(Integer.parseInt(line.substring(i + 1, i + 5), 16).toChar)
+                i += 4
+              case c => sb.append(c)
+            }
+          case c => sb.append(c)
+        }
+        i += 1
+      }
+      Some(Entry(time, kind, sb.toString, truncated))
+    } catch {
+      case _: Throwable => None
+    }
+  }
+
+  def entries(file: Path): Iterator[Entry] = {
+    val reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)
+    Iterator.continually(reader.readLine()).takeWhile { l =>
+      if (l == null) reader.close()
+      l != null
+    }.flatMap(decode)
+  }
+}
+
+final class ClientLog(file: Path, maxBytes: => Long, generations: Int = ClientLog.defaultGenerations,
+                      capacity: Int = ClientLog.defaultCapacity) extends Closeable {
+
+  import ClientLog._
+
+  // Bounded multi-producer ring (Vyukov): slot i is writable when seq(i) == position, readable when position + 1
+  private val mask: Int = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) - 1
+  private val slots = new AtomicReferenceArray[Entry](mask + 1)
+  private val seqs = {
+    val r = new AtomicLongArray(mask + 1)
+    for (i <- 0 until r.length) r.set(i, i)
+    r
+  }
+  private val enqueuePos = new AtomicLong
+  private var dequeuePos = 0L
+  private val dropped = new AtomicLong
+  @volatile private var closed = false
+  @volatile private var idle = false
+  private var channel: FileChannel = _
+  private var size: Long = 0
+
+  private val writer: Thread = new Thread(() => run(), "Sireum Client Log")
+  writer.setDaemon(true)
+  writer.start()
+
+  def droppedCount: Long = dropped.get
+
+  def log(kind: Kind.Value, content: String, truncated: Boolean): Unit = {
+    if (closed) return
+    if (!offer(Entry(System.currentTimeMillis, kind, content, truncated))) dropped.incrementAndGet()
+    else if (idle) LockSupport.unpark(writer)
+  }
+
+  private def offer(e: Entry): Boolean = {
+    while (true) {
+      val pos = enqueuePos.get
+      val i = (pos & mask).toInt
+      val diff = seqs.get(i) - pos
+      if (diff == 0) {
+        if (enqueuePos.compareAndSet(pos, pos + 1)) {
+          slots.set(i, e)
+          seqs.set(i, pos + 1)
+          return true
+        }
+      } else if (diff < 0) return false
+    }
+    false
+  }
+
+  private def poll(): Entry = {
+    val i = (dequeuePos & mask).toInt
+    if (seqs.get(i) != dequeuePos + 1) return null
+    val e = slots.get(i)
+    slots.set(i, null)
+    seqs.set(i, dequeuePos + mask + 1)
+    dequeuePos += 1
+    e
+  }
+
+  private def hasPending: Boolean = seqs.get((dequeuePos & mask).toInt) == dequeuePos + 1
+
+  // I/O failures do not stop the writer: the batch in flight is counted as dropped, the channel is reopened
+  // (rotating the failed file), and writing resumes after a short back-off. Failures go to the IDE log (this one
+  // may be the one failing), at most once per interval.
+  private def run(): Unit = {
+    val sb = new java.lang.StringBuilder
+    var reported = 0L
+    var lastFailure = 0L
+    var failures = 0
+    var batch = 0
+    try {
+      while (!closed || hasPending) {
+        try {
+          if (channel == null) open()
+          var e = poll()
+          if (e == null) {
+            idle = true
+            e = poll()
+            if (e == null && !closed) LockSupport.parkNanos(100L * 1000 * 1000)
+            idle = false
+          }
+          while (e != null && sb.length < maxBatchBytes) {
+            encode(e, sb)
+            batch += 1
+            e = if (sb.length < maxBatchBytes) poll() else null
+          }
+          val d = dropped.get
+          if (d != reported) {
+            encode(Entry(System.currentTimeMillis, Kind.Note, s"Dropped ${d - reported} log entries", truncated = false), sb)
+            reported = d
+          }
+          if (sb.length > 0) {
+            write(sb.toString)
+            sb.setLength(0)
+            batch = 0
+          }
+        } catch {
+          case t: Throwable =>
+            failures += 1
+            val now = System.currentTimeMillis
+            if (now - lastFailure >= failureReportIntervalInMs) {
+              logger.warn(s"Could not write client log $file ($failures failure(s) since the last report)", t)
+              lastFailure = now
+              failures = 0
+            }
+            dropped.addAndGet(batch)
+            batch = 0
+            sb.setLength(0)
+            closeChannel()
+            if (closed) return
+            LockSupport.parkNanos(1000L * 1000 * 1000)
+        }
+      }
+    } finally closeChannel()
+  }
+
+  private def closeChannel(): Unit = {
+    if (channel != null) try channel.close() catch {
+      case _: Throwable =>
+    }
+    channel = null
+  }
+
+  private def write(text: String): Unit = {
+    val bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))
+    if (size > 0 && size + bytes.remaining > maxBytes) {
+      closeChannel()
+      open()
+    }
+    while (bytes.hasRemaining) size += channel.write(bytes)
+  }
+
+  private def open(): Unit = {
+    Files.createDirectories(file.toAbsolutePath.getParent)
+    if (Files.exists(file)) {
+      def generation(n: Int): Path = file.resolveSibling(s"${file.getFileName}.$n")
+      Files.deleteIfExists(generation(generations))
+      for (n <- generations - 1 to 1 by -1 if Files.exists(generation(n)))
+        Files.move(generation(n), generation(n + 1), StandardCopyOption.REPLACE_EXISTING)
+      if (generations > 0) Files.move(file, generation(1), StandardCopyOption.REPLACE_EXISTING)
+      else Files.delete(file)
+    }
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING)
+    size = 0
+  }
+
+  override def close(): Unit = {
+    closed = true
+    LockSupport.unpark(writer)
+  }
+
+  // Waits for the writer to drain the ring after close
+  private[intellij] def awaitTermination(timeoutInMs: Long): Boolean = {
+    writer.join(timeoutInMs)
+    !writer.isAlive
+  }
+}
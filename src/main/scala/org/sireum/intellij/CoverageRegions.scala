@@ -0,0 +1,113 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import com.intellij.openapi.editor.markup.{HighlighterTargetArea, MarkupModel, RangeHighlighter, TextAttributes}
+
+object CoverageRegions {
+
+  final class Region(val begin: Int, val end: Int) {
+    var highlighterOpt: Option[RangeHighlighter] = None
+  }
+
+}
+
+// Covered (1-based, inclusive) line ranges of an editor, merged so that adjacent or overlapping
+// ranges share a single region; only regions changed since the last paint get new highlighters.
+final class CoverageRegions {
+
+  import CoverageRegions._
+
+  private val regions = new java.util.TreeMap[Int, Region]
+  private var stale = Vector[RangeHighlighter]()
+  private var dirty = false
+
+  def size: Int = regions.size
+
+  def contains(line: Int): Boolean = {
+    val e = regions.floorEntry(line)
+    e != null && e.getValue.end >= line
+  }
+
+  def add(beginLine: Int, endLine: Int): Boolean = {
+    var begin = beginLine
+    var end = endLine
+    val floor = regions.floorEntry(begin)
+    if (floor != null && floor.getValue.end >= end) return false
+    if (floor != null && floor.getValue.end >= begin - 1) begin = floor.getKey
+    var e = regions.ceilingEntry(begin)
+    while (e != null && e.getKey <= end + 1) {
+      val region = e.getValue
+      if (region.end > end) end = region.end
+      stale = stale ++ region.highlighterOpt
+      regions.remove(e.getKey)
+      e = regions.higherEntry(region.begin)
+    }
+    regions.put(begin, new Region(begin, end))
+    dirty = true
+    true
+  }
+
+  def remove(beginLine: Int, endLine: Int): Boolean = {
+    val floor = regions.floorEntry(beginLine)
+    var e = if (floor != null && floor.getValue.end >= beginLine) floor else regions.ceilingEntry(beginLine)
+    var changed = false
+    while (e != null && e.getKey <= endLine) {
+      val region = e.getValue
+      regions.remove(e.getKey)
+      stale = stale ++ region.highlighterOpt
+      if (region.begin < beginLine) regions.put(region.begin, new Region(region.begin, beginLine - 1))
+      if (region.end > endLine) regions.put(endLine + 1, new Region(endLine + 1, region.end))
+      changed = true
+      e = regions.higherEntry(region.begin)
+    }
+    if (changed) dirty = true
+    changed
+  }
+
+  def paint(mm: MarkupModel, layer: Int, ta: TextAttributes, reportItem: SireumClient.ReportItem): Unit = {
+    if (!dirty) return
+    for (rh <- stale) mm.removeHighlighter(rh)
+    stale = Vector()
+    val document = mm.getDocument
+    val max = document.getLineCount - 1
+    if (max >= 0) {
+      val it = regions.values.iterator
+      while (it.hasNext) {
+        val region = it.next()
+        if (region.highlighterOpt.isEmpty) {
+          val b = Math.min(Math.max(region.begin - 1, 0), max)
+          val e = Math.min(Math.max(region.end - 1, b), max)
+          val rh = mm.addRangeHighlighter(document.getLineStartOffset(b), document.getLineEndOffset(e), layer, ta,
+            HighlighterTargetArea.LINES_IN_RANGE)
+          rh.putUserData(SireumClient.reportItemKey, reportItem)
+          region.highlighterOpt = Some(rh)
+        }
+      }
+    }
+    dirty = false
+  }
+}
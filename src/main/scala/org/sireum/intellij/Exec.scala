@@ -26,10 +26,11 @@
 package org.sireum.intellij
 
 import java.io._
-import java.nio.ByteBuffer
-import java.util.concurrent.TimeUnit
+import java.nio.charset.{Charset, CodingErrorAction, StandardCharsets}
+import java.nio.{ByteBuffer, CharBuffer}
+import java.util.concurrent.{CompletableFuture, TimeUnit}
 
-import com.zaxxer.nuprocess.{NuAbstractProcessHandler, NuProcessBuilder}
+import com.zaxxer.nuprocess.{NuAbstractProcessHandler, NuProcess, NuProcessBuilder}
 
 import scala.sys.process.ProcessIO
 
@@ -43,6 +44,65 @@ object Exec {
 
   case class StringResult(s: String, exitValue: Int) extends Result
 
+  val defaultMaxCapture: Int = 64 * 1024 * 1024
+
+  final class Output(maxCapture: Int) {
+    private val sb = new java.lang.StringBuilder
+    private var truncated = false
+
+    def append(cs: CharBuffer): Unit = synchronized {
+      val n = Math.min(cs.remaining, maxCapture - sb.length)
+      if (n > 0) sb.append(cs, 0, n)
+      if (n < cs.remaining) truncated = true
+    }
+
+    def isTruncated: Boolean = synchronized(truncated)
+
+    override def toString: String = synchronized(sb.toString)
+  }
+
+  final class StreamDecoder(charset: Charset, output: Output, onLine: String => Unit) {
+    private val decoder = charset.newDecoder.onMalformedInput(CodingErrorAction.REPLACE).
+      onUnmappableCharacter(CodingErrorAction.REPLACE)
+    private val chars = CharBuffer.allocate(8192)
+    private val line = new java.lang.StringBuilder
+
+    def decode(buffer: ByteBuffer, endOfInput: Boolean): Unit = {
+      var underflow = false
+      while (!underflow) {
+        underflow = decoder.decode(buffer, chars, endOfInput).isUnderflow
+        drain()
+      }
+      if (endOfInput) {
+        decoder.flush(chars)
+        drain()
+        decoder.reset()
+        if (onLine != null && line.length > 0) {
+          onLine(line.toString)
+          line.setLength(0)
+        }
+      }
+    }
+
+    private def drain(): Unit = {
+      chars.flip()
+      if (chars.hasRemaining) {
+        output.append(chars)
+        if (onLine != null) {
+          var start = chars.position
+          for (i <- chars.position until chars.limit if chars.get(i) == '\n') {
+            line.append(chars, start - chars.position, i - chars.position)
+            onLine(line.toString)
+            line.setLength(0)
+            start = i + 1
+          }
+          line.append(chars, start - chars.position, chars.limit - chars.position)
+        }
+      }
+      chars.clear()
+    }
+  }
+
   {
     System.setProperty("jna.nosys", "true")
   }
@@ -72,7 +132,12 @@ final class Exec {
     run(waitTime, args, input, None, extraEnv: _*)
 
   def run(waitTime: Long, args: Seq[String], input: Option[String],
-          dir: Option[File], extraEnv: (String, String)*): Exec.Result = {
+          dir: Option[File], extraEnv: (String, String)*): Exec.Result =
+    start(waitTime, args, input, dir, Exec.defaultMaxCapture, null, null, extraEnv: _*).join()
+
+  def start(waitTime: Long, args: Seq[String], input: Option[String], dir: Option[File], maxCapture: Int,
+            onLine: String => Unit, onStart: NuProcess => Unit,
+            extraEnv: (String, String)*): CompletableFuture[Exec.Result] = {
     import scala.jdk.CollectionConverters._
     val commands = new java.util.ArrayList(args.asJavaCollection)
     val m = scala.collection.mutable.HashMap[String, String]()
@@ -80,45 +145,49 @@ final class Exec {
       m.put(k, v)
     }
     val npb = new NuProcessBuilder(commands, m.asJava)
-    val sb = new java.lang.StringBuilder()
+    for (d <- dir) npb.setCwd(d.toPath)
+    val result = new CompletableFuture[Exec.Result]
+    val output = new Exec.Output(maxCapture)
+    val out = new Exec.StreamDecoder(StandardCharsets.UTF_8, output, onLine)
+    val err = new Exec.StreamDecoder(StandardCharsets.UTF_8, output, onLine)
     npb.setProcessListener(new NuAbstractProcessHandler {
-      def append(buffer: ByteBuffer): Unit = {
-        val bytes = new Array[Byte](buffer.remaining)
-        buffer.get(bytes)
-        bytes.foreach(b => sb.append(b.toChar))
-      }
+      override def onStderr(buffer: ByteBuffer, closed: Boolean): Unit = err.decode(buffer, closed)
 
-      override def onStderr(buffer: ByteBuffer, closed: Boolean): Unit = {
-        if (!closed) append(buffer)
-      }
+      override def onStdout(buffer: ByteBuffer, closed: Boolean): Unit = out.decode(buffer, closed)
 
-      override def onStdout(buffer: ByteBuffer, closed: Boolean): Unit = {
-        if (!closed) append(buffer)
-      }
+      override def onExit(statusCode: Int): Unit =
+        if (statusCode != Int.MinValue) result.complete(Exec.StringResult(output.toString, statusCode))
+        else result.complete(Exec.ExceptionRaised(new RuntimeException(s"Could not execute command: ${args.mkString(" ")}")))
     })
     val p = npb.start()
     if (p != null && p.isRunning) {
+      if (onStart != null) onStart(p)
       input match {
-        case Some(in) => p.writeStdin(ByteBuffer.wrap(in.getBytes))
+        case Some(in) => p.writeStdin(ByteBuffer.wrap(in.getBytes(StandardCharsets.UTF_8)))
         case _ =>
       }
       p.closeStdin(false)
-      val t = if (waitTime <= 0) 0 else waitTime
-      val exitCode = p.waitFor(t, TimeUnit.MILLISECONDS)
-      if (exitCode != Int.MinValue) return Exec.StringResult(sb.toString, exitCode)
-      if (p.isRunning) try {
-        p.destroy(false)
-        p.waitFor(500, TimeUnit.MICROSECONDS)
-      } catch {
+      result.whenComplete((r, t) => if (r == Exec.Timeout || t != null) destroy(p))
+      if (waitTime > 0) {
+        CompletableFuture.delayedExecutor(waitTime, TimeUnit.MILLISECONDS).execute(() => result.complete(Exec.Timeout))
+      }
+    } else result.complete(Exec.ExceptionRaised(new RuntimeException(s"Could not execute command: ${args.mkString(" ")}")))
+    result
+  }
+
+  private def destroy(p: NuProcess): Unit = {
+    if (p == null || !p.isRunning) return
+    try {
+      p.destroy(false)
+      p.waitFor(500, TimeUnit.MILLISECONDS)
+    } catch {
+      case _: Throwable =>
+    }
+    if (p.isRunning)
+      try p.destroy(true)
+      catch {
         case _: Throwable =>
       }
-      if (p.isRunning)
-        try p.destroy(true)
-        catch {
-          case _: Throwable =>
-        }
-      Exec.Timeout
-    } else Exec.ExceptionRaised(new RuntimeException(s"Could not execute command: ${args.mkString(" ")}"))
   }
 
   def errorF(is: InputStream): Unit = {
@@ -0,0 +1,89 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.nio.ByteBuffer
+import java.nio.channels.ReadableByteChannel
+import java.nio.charset.StandardCharsets
+
+final class FrameReader(channel: ReadableByteChannel, bufferSize: Int = 1 << 16) {
+  private val buffer: ByteBuffer = ByteBuffer.allocate(bufferSize)
+  private var frame: Array[Byte] = new Array[Byte](bufferSize)
+  private var frameLength: Int = 0
+  private var numOfBytes: Long = 0
+
+  buffer.flip()
+
+  def bytesRead: Long = numOfBytes
+
+  // Returns the next newline-delimited frame (without the trailing line separator), or null on end-of-stream
+  def next(): String = {
+    val bytes = buffer.array
+    while (true) {
+      if (!buffer.hasRemaining) {
+        buffer.clear()
+        var n = 0
+        while (n == 0) n = channel.read(buffer)
+        buffer.flip()
+        if (n < 0) {
+          if (frameLength == 0) return null
+          return flush()
+        }
+        numOfBytes += n
+      }
+      val start = buffer.position
+      val end = buffer.limit
+      var i = start
+      while (i < end && bytes(i) != '\n') i += 1
+      append(bytes, start, i - start)
+      if (i < end) {
+        buffer.position(i + 1)
+        return flush()
+      }
+      buffer.position(end)
+    }
+    null
+  }
+
+  private def append(bytes: Array[Byte], offset: Int, length: Int): Unit = {
+    if (length == 0) return
+    val size = frameLength + length
+    if (size > frame.length) {
+      var newLength = frame.length * 2
+      while (newLength < size) newLength *= 2
+      frame = java.util.Arrays.copyOf(frame, newLength)
+    }
+    System.arraycopy(bytes, offset, frame, frameLength, length)
+    frameLength = size
+  }
+
+  private def flush(): String = {
+    val length = if (frameLength > 0 && frame(frameLength - 1) == '\r') frameLength - 1 else frameLength
+    val r = new String(frame, 0, length, StandardCharsets.UTF_8)
+    frameLength = 0
+    r
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.{ConcurrentHashMap, PriorityBlockingQueue}
+
+object Lanes {
+
+  // Every lane is a single thread, so tasks on the same resource (e.g., a project's result store) run in submission
+  // order. IO is for short file operations on the response path (result stores, spilled payloads); project-wide
+  // walks (the Slang file index) go to Index so they never queue in front of them.
+  object Lane extends Enumeration {
+    val Server, Request, IO, Index = Value
+  }
+
+  // Lower ids run first
+  object Priority extends Enumeration {
+    val Foreground, Background = Value
+  }
+
+  private final class Task(val lane: Lane.Value, val priority: Priority.Value, val seq: Long, val key: AnyRef,
+                           val f: () => Unit) extends Comparable[Task] {
+    val enqueued: Long = System.nanoTime
+
+    override def compareTo(o: Task): Int = {
+      val c = Integer.compare(priority.id, o.priority.id)
+      if (c != 0) c else java.lang.Long.compare(seq, o.seq)
+    }
+  }
+
+  private final class Worker(lane: Lane.Value) {
+    val queue = new PriorityBlockingQueue[Task]
+    private val thread = new Thread(() => run(), s"Sireum $lane Lane")
+    thread.setDaemon(true)
+    thread.start()
+
+    private def run(): Unit = {
+      var terminated = false
+      while (!terminated) try {
+        val task = queue.take()
+        if (task.f == null) terminated = true
+        else if (task.key == null || latest.remove((lane, task.key), task)) {
+          if (Metrics.enabled) Metrics.queueTime(lane.toString).record(System.nanoTime - task.enqueued)
+          try task.f() catch {
+            case _: InterruptedException => terminated = true
+            case t: Throwable => SireumClient.logStackTrace(t)
+          }
+        }
+      } catch {
+        case _: InterruptedException => terminated = true
+      }
+    }
+
+    def shutdown(): Unit = {
+      queue.clear()
+      queue.add(new Task(lane, Priority.Background, Long.MaxValue, null, null))
+    }
+  }
+
+  private val seq = new AtomicLong
+  private val latest = new ConcurrentHashMap[(Lane.Value, AnyRef), Task]
+  private val workers = new ConcurrentHashMap[Lane.Value, Worker]
+
+  // A keyed task supersedes any not-yet-started task with the same key in the same lane
+  def submit(lane: Lane.Value, priority: Priority.Value, key: AnyRef = null)(f: () => Unit): Unit = {
+    val task = new Task(lane, priority, seq.incrementAndGet(), key, f)
+    if (key != null) latest.put((lane, key), task)
+    workers.computeIfAbsent(lane, l => new Worker(l)).queue.add(task)
+  }
+
+  def pending(lane: Lane.Value): Int = workers.get(lane) match {
+    case null => 0
+    case w => w.queue.size
+  }
+
+  def shutdown(): Unit = {
+    workers.forEach((_, w) => w.shutdown())
+    workers.clear()
+    latest.clear()
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import com.intellij.openapi.editor.markup.{MarkupModel, RangeHighlighter}
+
+object LineGutters {
+
+  final class Gutter(val item: SireumClient.ReportItem, val create: MarkupModel => RangeHighlighter)
+
+}
+
+// Pending gutter (line) highlighters of an editor's console, summoning, and hint items. A line shows one gutter
+// per item kind and every new item of that kind replaces it, so within an EDT batch only the last one per line and
+// kind is kept; paint adds them in one pass after the batch, as CoverageRegions does for coverage.
+final class LineGutters {
+
+  import LineGutters._
+
+  private val pending = new java.util.LinkedHashMap[(Int, Class[_]), Gutter]
+
+  def isEmpty: Boolean = pending.isEmpty
+
+  def put(line: Int, item: SireumClient.ReportItem)(create: MarkupModel => RangeHighlighter): Unit =
+    pending.put((line, item.getClass), new Gutter(item, create))
+
+  def get(line: Int, kind: Class[_]): Option[Gutter] = Option(pending.get((line, kind)))
+
+  def remove(line: Int): Unit = pending.keySet.removeIf(_._1 == line)
+
+  def paint(mm: MarkupModel, rhs: scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]]): Unit = {
+    pending.forEach { (key, gutter) =>
+      val rh = gutter.create(mm)
+      rh.putUserData(SireumClient.reportItemKey, gutter.item)
+      rhs.put(key._1, rhs.getOrElse(key._1, Vector()) :+ rh)
+    }
+    pending.clear()
+  }
+}
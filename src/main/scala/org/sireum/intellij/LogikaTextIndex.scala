@@ -0,0 +1,230 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import org.sireum.intellij.smtlib.SMTLIBv2Scanner
+
+object LogikaTextIndex {
+
+  final class Cancelled extends RuntimeException(null, null, false, false)
+
+  def unfiltered(query: String, text: String): String = {
+    val sb = new java.lang.StringBuilder(text.length + query.length + 48)
+    sb.append("// Could not filter by (only highlight): ").append(query).append("\n\n").append(text)
+    sb.toString
+  }
+
+  def build(text: String, kind: String, isCancelled: () => Boolean): LogikaTextIndex = {
+    val starts = new scala.collection.mutable.ArrayBuilder.ofInt
+    val ends = new scala.collection.mutable.ArrayBuilder.ofInt
+
+    def lineEnds: Array[Int] = {
+      val r = new scala.collection.mutable.ArrayBuilder.ofInt
+      var i = text.indexOf('\n')
+      while (i >= 0) {
+        r += i
+        i = text.indexOf('\n', i + 1)
+      }
+      r += text.length
+      r.result()
+    }
+
+    val (header, separator, footer, filterable) = kind match {
+      case "claims " =>
+        val le = lineEnds
+        def lineStart(i: Int): Int = if (i == 0) 0 else le(i - 1) + 1
+        val size = le.length
+        var i = 1
+        while (i < size) {
+          if (isCancelled()) throw new Cancelled
+          var j = i
+          var found = false
+          while (j < size && !found) {
+            val ls = lineStart(j)
+            val l = le(j)
+            if (l > ls && text.charAt(l - 1) == ';') {
+              found = true
+              starts += lineStart(i)
+              ends += l
+            } else if (l > ls && text.charAt(ls) == '}') {
+              found = true
+              if (j > i) {
+                starts += lineStart(i)
+                ends += le(j - 1)
+              }
+            }
+            j += 1
+          }
+          i = j
+        }
+        ("{\n", "\n", "\n}", true)
+      case "trace " =>
+        val le = lineEnds
+        def lineStart(i: Int): Int = if (i == 0) 0 else le(i - 1) + 1
+        val size = le.length
+        for (i <- 0 until size) {
+          if ((i & 0xfff) == 0 && isCancelled()) throw new Cancelled
+          val ls = lineStart(i)
+          if (text.startsWith("by [", ls) || text.startsWith("∴", ls) || text.startsWith("Begin", ls) ||
+            text.startsWith("info [", ls)) {
+            var j = i + 1
+            while (j < size && le(j) > lineStart(j)) j += 1
+            starts += ls
+            ends += math.min(le(j - 1) + 1, text.length)
+          }
+        }
+        ("\n", "\n", "", true)
+      case _ =>
+        SMTLIBv2Scanner.commands(text, isCancelled) match {
+          case Some(commands) =>
+            for (c <- commands) {
+              starts += c.start
+              ends += c.end
+            }
+            ("\n", "\n", "", true)
+          case _ =>
+            if (isCancelled()) throw new Cancelled
+            ("", "", "", false)
+        }
+    }
+    val index = new LogikaTextIndex(text, starts.result(), ends.result(), header, separator, footer, filterable)
+    index.buildTrigrams(isCancelled)
+    index
+  }
+
+  private final class Posting {
+    val ids = new scala.collection.mutable.ArrayBuilder.ofInt
+    var last: Int = -1
+  }
+
+  @inline private def trigram(s: CharSequence, i: Int): Long =
+    (s.charAt(i).toLong << 32) | (s.charAt(i + 1).toLong << 16) | s.charAt(i + 2).toLong
+}
+
+final class LogikaTextIndex(val text: String,
+                            chunkStarts: Array[Int],
+                            chunkEnds: Array[Int],
+                            header: String,
+                            separator: String,
+                            footer: String,
+                            val isFilterable: Boolean) {
+
+  import LogikaTextIndex._
+
+  private var postings = new java.util.HashMap[java.lang.Long, Array[Int]]
+
+  def size: Int = chunkStarts.length
+
+  def allChunks: Array[Int] = Array.range(0, size)
+
+  def highlightFrom(rendered: String): Int = if (header == "{\n") rendered.indexOf('{') + 1 else 1
+
+  private def buildTrigrams(isCancelled: () => Boolean): Unit = {
+    val builders = new java.util.HashMap[java.lang.Long, Posting]
+    for (c <- 0 until size) {
+      if (isCancelled()) throw new Cancelled
+      var i = chunkStarts(c)
+      val end = chunkEnds(c) - 2
+      while (i < end) {
+        val key = java.lang.Long.valueOf(trigram(text, i))
+        var p = builders.get(key)
+        if (p == null) {
+          p = new Posting
+          builders.put(key, p)
+        }
+        if (p.last != c) {
+          p.ids += c
+          p.last = c
+        }
+        i += 1
+      }
+    }
+    val m = new java.util.HashMap[java.lang.Long, Array[Int]](builders.size * 2)
+    builders.forEach((k, v) => m.put(k, v.ids.result()))
+    postings = m
+  }
+
+  def filter(query: String, candidates: Array[Int], isCancelled: () => Boolean): Array[Int] = {
+    if (query.isEmpty) return candidates
+    var cs = candidates
+    if (query.length >= 3) {
+      var i = 0
+      while (i + 2 < query.length && cs.nonEmpty) {
+        if (isCancelled()) throw new Cancelled
+        val posting = postings.get(java.lang.Long.valueOf(trigram(query, i)))
+        cs = if (posting == null) Array() else intersect(cs, posting)
+        i += 1
+      }
+    }
+    val r = new scala.collection.mutable.ArrayBuilder.ofInt
+    for (c <- cs) {
+      if (isCancelled()) throw new Cancelled
+      if (contains(chunkStarts(c), chunkEnds(c), query)) r += c
+    }
+    r.result()
+  }
+
+  def render(query: String, chunks: Array[Int]): String = {
+    val sb = new java.lang.StringBuilder(header.length + footer.length + query.length + 32 +
+      chunks.foldLeft(0)((n, c) => n + chunkEnds(c) - chunkStarts(c) + separator.length))
+    sb.append("// Filtered by: ").append(query).append('\n').append(header)
+    var first = true
+    for (c <- chunks) {
+      if (!first) sb.append(separator)
+      first = false
+      sb.append(text, chunkStarts(c), chunkEnds(c))
+    }
+    sb.append(footer)
+    sb.toString
+  }
+
+  private def contains(start: Int, end: Int, q: String): Boolean = {
+    val last = end - q.length
+    val c0 = q.charAt(0)
+    var i = start
+    while (i <= last) {
+      if (text.charAt(i) == c0 && text.regionMatches(i, q, 0, q.length)) return true
+      i += 1
+    }
+    false
+  }
+
+  private def intersect(a: Array[Int], b: Array[Int]): Array[Int] = {
+    val r = new scala.collection.mutable.ArrayBuilder.ofInt
+    var i = 0
+    var j = 0
+    while (i < a.length && j < b.length) {
+      if (a(i) < b(j)) i += 1
+      else if (a(i) > b(j)) j += 1
+      else {
+        r += a(i)
+        i += 1
+        j += 1
+      }
+    }
+    r.result()
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong, AtomicLongArray, LongAdder}
+
+object Metrics {
+
+  // Log2 buckets over microseconds: bucket i holds samples in [2^(i-1), 2^i) us
+  final class Histogram {
+    private val buckets = new AtomicLongArray(48)
+    private val count = new LongAdder
+    private val sum = new LongAdder
+    private val max = new AtomicLong
+
+    def record(nanos: Long): Unit = {
+      val us = Math.max(0L, nanos / 1000)
+      buckets.incrementAndGet(Math.min(buckets.length - 1, 64 - java.lang.Long.numberOfLeadingZeros(us)))
+      count.increment()
+      sum.add(us)
+      max.accumulateAndGet(us, (a, b) => Math.max(a, b))
+    }
+
+    def size: Long = count.sum
+
+    def meanMs: Double = if (size == 0) 0d else sum.sum / 1000d / size
+
+    def maxMs: Double = max.get / 1000d
+
+    def percentileMs(p: Double): Double = {
+      val n = size
+      if (n == 0) return 0d
+      val rank = Math.ceil(p * n).toLong
+      var seen = 0L
+      for (i <- 0 until buckets.length) {
+        seen += buckets.get(i)
+        if (seen >= rank) return Math.min((1L << i) / 1000d, maxMs)
+      }
+      maxMs
+    }
+
+    def reset(): Unit = {
+      for (i <- 0 until buckets.length) buckets.set(i, 0)
+      count.reset()
+      sum.reset()
+      max.set(0)
+    }
+  }
+
+  private final class Start(val nanos: Long) {
+    @volatile var hasResponse: Boolean = false
+  }
+
+  val keystrokeToRequest: Histogram = new Histogram
+  val requestToFirstResponse: Histogram = new Histogram
+  val requestToEnd: Histogram = new Histogram
+  val decode: Histogram = new Histogram
+  val edt: ConcurrentHashMap[String, Histogram] = new ConcurrentHashMap
+  val lanes: ConcurrentHashMap[String, Histogram] = new ConcurrentHashMap
+  val messagesSent: LongAdder = new LongAdder
+  val messagesReceived: LongAdder = new LongAdder
+  val bytesReceived: AtomicLong = new AtomicLong
+  @volatile private var bytesSentBase: Long = 0L
+  val maxQueueDepth: AtomicInteger = new AtomicInteger
+  private val starts = new ConcurrentHashMap[org.sireum.ISZ[org.sireum.String], Start]
+  @volatile private var since: Long = System.currentTimeMillis
+
+  def enabled: Boolean = SireumApplicationComponent.metricsEnabled
+
+  def requestSent(id: org.sireum.ISZ[org.sireum.String], lastEdit: java.lang.Long): Unit = if (enabled) {
+    val now = System.nanoTime
+    starts.put(id, new Start(now))
+    if (lastEdit != null) keystrokeToRequest.record((System.currentTimeMillis - lastEdit) * 1000000L)
+    sampleQueueDepth()
+  }
+
+  def responseReceived(r: org.sireum.server.protocol.Response): Unit = if (enabled) {
+    messagesReceived.increment()
+    val start = starts.get(r.id)
+    if (start != null) {
+      val elapsed = System.nanoTime - start.nanos
+      if (!start.hasResponse) {
+        start.hasResponse = true
+        requestToFirstResponse.record(elapsed)
+      }
+      r match {
+        case _: org.sireum.server.protocol.Analysis.End =>
+          requestToEnd.record(elapsed)
+          starts.remove(r.id)
+        case _ =>
+      }
+    }
+  }
+
+  def requestCancelled(id: org.sireum.ISZ[org.sireum.String]): Unit = starts.remove(id)
+
+  // Requests still in flight when the server goes away never get an End
+  def serverShutdown(): Unit = starts.clear()
+
+  def sampleQueueDepth(): Unit = if (enabled) maxQueueDepth.accumulateAndGet(queueDepth, (a, b) => Math.max(a, b))
+
+  def timeDecode[T](f: => T): T =
+    if (!enabled) f
+    else {
+      val start = System.nanoTime
+      try f finally decode.record(System.nanoTime - start)
+    }
+
+  def timeEdt(r: org.sireum.server.protocol.Response)(f: => Unit): Unit =
+    if (!enabled) f
+    else {
+      val start = System.nanoTime
+      try f finally edt.computeIfAbsent(r.getClass.getSimpleName, _ => new Histogram).record(System.nanoTime - start)
+    }
+
+  def queueTime(lane: String): Histogram = lanes.computeIfAbsent(lane, _ => new Histogram)
+
+  def bytesSent: Long = SireumClient.bytesSent.get - bytesSentBase
+
+  def queueDepth: Int = SireumClient.queue.size + SireumClient.frames.size + SireumClient.pendingRequests.size +
+    SireumClient.pendingResults.synchronized(SireumClient.pendingResults.size)
+
+  def reset(): Unit = {
+    for (h <- Seq(keystrokeToRequest, requestToFirstResponse, requestToEnd, decode)) h.reset()
+    edt.clear()
+    lanes.clear()
+    starts.clear()
+    messagesSent.reset()
+    messagesReceived.reset()
+    bytesSentBase = SireumClient.bytesSent.get
+    bytesReceived.set(0)
+    maxQueueDepth.set(0)
+    since = System.currentTimeMillis
+  }
+
+  private def histograms: Vector[(String, Histogram)] = {
+    import scala.jdk.CollectionConverters._
+    Vector(
+      "keystrokeToRequest" -> keystrokeToRequest,
+      "requestToFirstResponse" -> requestToFirstResponse,
+      "requestToEnd" -> requestToEnd,
+      "decode" -> decode
+    ) ++ lanes.asScala.toVector.sortBy(_._1).map(p => s"queue.${p._1}" -> p._2) ++
+      edt.asScala.toVector.sortBy(_._1).map(p => s"edt.${p._1}" -> p._2)
+  }
+
+  def report: String = {
+    val sb = new java.lang.StringBuilder
+    sb.append(if (enabled) "Collecting" else "Disabled").append(" since ").append(new java.util.Date(since)).append("\n\n")
+    sb.append(f"${"Metric"}%-40s ${"Count"}%10s ${"Mean"}%10s ${"p50"}%10s ${"p90"}%10s ${"p99"}%10s ${"Max"}%10s%n")
+    for ((name, h) <- histograms) {
+      sb.append(f"$name%-40s ${h.size}%10d ${h.meanMs}%10.2f ${h.percentileMs(0.5)}%10.2f ${h.percentileMs(0.9)}%10.2f ${h.percentileMs(0.99)}%10.2f ${h.maxMs}%10.2f%n")
+    }
+    sb.append("\n(latencies in ms; percentiles are log2-bucket upper bounds)\n\n")
+    sb.append(f"Queue depth: $queueDepth (max ${maxQueueDepth.get})%n")
+    sb.append(f"Sent: ${messagesSent.sum} messages, $bytesSent bytes%n")
+    sb.append(f"Received: ${messagesReceived.sum} messages, ${bytesReceived.get} bytes%n")
+    sb.toString
+  }
+
+  def toJson: String = {
+    val sb = new java.lang.StringBuilder
+    sb.append("{\n  \"timestamp\" : ").append(System.currentTimeMillis)
+    sb.append(",\n  \"since\" : ").append(since)
+    sb.append(",\n  \"enabled\" : ").append(enabled)
+    sb.append(",\n  \"queueDepth\" : ").append(queueDepth)
+    sb.append(",\n  \"maxQueueDepth\" : ").append(maxQueueDepth.get)
+    sb.append(",\n  \"messagesSent\" : ").append(messagesSent.sum)
+    sb.append(",\n  \"bytesSent\" : ").append(bytesSent)
+    sb.append(",\n  \"messagesReceived\" : ").append(messagesReceived.sum)
+    sb.append(",\n  \"bytesReceived\" : ").append(bytesReceived.get)
+    sb.append(",\n  \"histograms\" : {")
+    var first = true
+    for ((name, h) <- histograms) {
+      sb.append(if (first) "\n" else ",\n")
+      first = false
+      sb.append("    \"").append(name).append("\" : { \"count\" : ").append(h.size).
+        append(", \"meanMs\" : ").append(h.meanMs).
+        append(", \"p50Ms\" : ").append(h.percentileMs(0.5)).
+        append(", \"p90Ms\" : ").append(h.percentileMs(0.9)).
+        append(", \"p99Ms\" : ").append(h.percentileMs(0.99)).
+        append(", \"maxMs\" : ").append(h.maxMs).append(" }")
+    }
+    sb.append("\n  }\n}\n")
+    sb.toString
+  }
+}
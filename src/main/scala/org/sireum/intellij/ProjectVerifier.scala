@@ -0,0 +1,341 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.io.{OutputStreamWriter, Writer}
+import java.net.{InetAddress, InetSocketAddress}
+import java.nio.channels.{Channels, SocketChannel}
+import java.util.concurrent.{ConcurrentLinkedQueue, LinkedBlockingDeque}
+import java.util.concurrent.atomic.AtomicLong
+import scala.jdk.CollectionConverters._
+
+// Verifies a set of files on a pool of already running Sireum servers (identified by their loopback ports).
+// Jobs are dealt out largest first to per-server deques; a server that runs out of work steals from the tail of
+// the fullest other deque. Nothing here depends on the IDE, so the scheduler can be driven with stub workers.
+object ProjectVerifier {
+
+  final class Job(val path: org.sireum.Os.Path, val isScript: Boolean, val cost: Long)
+
+  final case class Obligation(path: String, line: Int, header: String, millis: Long)
+
+  final case class FileResult(path: String, server: Int, millis: Long, errors: Int, warnings: Int,
+                              obligations: Vector[Obligation], completed: Boolean)
+
+  final case class Summary(servers: Int, millis: Long, results: Vector[FileResult], cancelled: Boolean) {
+    def errors: Int = results.map(_.errors).sum
+
+    def warnings: Int = results.map(_.warnings).sum
+
+    def incomplete: Int = results.count(!_.completed)
+
+    def slowestObligations(n: Int): Vector[Obligation] = results.flatMap(_.obligations).sortBy(-_.millis).take(n)
+
+    def render(maxObligations: Int): String = {
+      val sb = new StringBuilder
+      sb.append(s"Verified ${results.size - incomplete} of ${results.size} file(s) on $servers server(s) in $millis ms: ")
+      sb.append(s"$errors error(s), $warnings warning(s)")
+      if (cancelled) sb.append(" (cancelled)")
+      sb.append("\n\nFiles (slowest first):\n")
+      for (r <- results.sortBy(-_.millis)) {
+        val status = if (!r.completed) "incomplete" else if (r.errors > 0) s"${r.errors} error(s)" else "ok"
+        val server = if (r.server >= 0) s"server ${r.server}" else "not started"
+        sb.append(f"${r.millis}%10d ms  ${r.path}  [$status, $server]%n")
+      }
+      val obligations = slowestObligations(maxObligations)
+      if (obligations.nonEmpty) {
+        sb.append("\nSlowest obligations:\n")
+        for (o <- obligations) sb.append(f"${o.millis}%10d ms  ${o.path}:${o.line}  ${o.header}%n")
+      }
+      sb.toString
+    }
+  }
+
+  final class Connection(port: Int) {
+    private val channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress, port))
+    private val reader = new FrameReader(channel)
+    private val writer: Writer = new OutputStreamWriter(Channels.newOutputStream(channel), "UTF-8")
+    private val lineSep = org.sireum.Os.lineSep.value
+    @volatile var inflight: org.sireum.ISZ[org.sireum.String] = _
+
+    def send(request: org.sireum.server.protocol.Request): Unit = synchronized {
+      writer.write(org.sireum.server.protocol.JSON.fromRequest(request, true).value)
+      writer.write(lineSep)
+      writer.flush()
+    }
+
+    // Returns the next decodable response, or None once the server closes the connection
+    def receive(): Option[org.sireum.server.protocol.Response] = {
+      while (true) {
+        val frame = reader.next()
+        if (frame == null) return None
+        val trimmed = frame.trim
+        if (trimmed.startsWith("{")) {
+          org.sireum.server.protocol.JSON.toResponse(trimmed) match {
+            case org.sireum.Either.Left(r) => return Some(r)
+            case _ =>
+          }
+        }
+      }
+      None
+    }
+
+    def cancel(): Unit = {
+      val id = inflight
+      if (id != null) try send(org.sireum.server.protocol.Cancel(id)) catch {
+        case _: Throwable =>
+      }
+      close()
+    }
+
+    def close(): Unit = try channel.close() catch {
+      case _: Throwable =>
+    }
+  }
+
+  def obligationHeader(info: String): String = {
+    val i = info.indexOf('\n')
+    (if (i >= 0) info.substring(0, i) else info).replace(';', ' ').trim
+  }
+
+  // One server as seen by the scheduler
+  trait Worker {
+    def verify(job: Job): Attempt
+
+    def cancel(): Unit
+
+    def close(): Unit
+  }
+
+  // The outcome of running a job once; alive is false when the server went away (the result is then incomplete)
+  final case class Attempt(result: FileResult, reports: Vector[org.sireum.server.protocol.Report], alive: Boolean)
+
+  val defaultMaxAttempts: Int = 2
+
+  private val requestIds = new AtomicLong
+
+  final class ServerWorker(self: Int,
+                           port: Int,
+                           requests: (Job, org.sireum.ISZ[org.sireum.String]) => Vector[org.sireum.server.protocol.Request],
+                           terminate: Boolean) extends Worker {
+    import org.sireum.server.protocol._
+
+    private val connection = new Connection(port)
+
+    def verify(job: Job): Attempt = {
+      val path = job.path.string.value
+      val id = org.sireum.ISZ(org.sireum.String("verify"), org.sireum.String(requestIds.incrementAndGet().toString))
+      val t = System.nanoTime
+      var errors = 0
+      var warnings = 0
+      var obligations = Vector[Obligation]()
+      var reports = Vector[Report]()
+      var done = false
+      var alive = true
+      try {
+        connection.inflight = id
+        for (request <- requests(job, id)) connection.send(request)
+        while (!done && alive) {
+          connection.receive() match {
+            case Some(r) if r.id == id =>
+              r match {
+                case _: Analysis.End => done = true
+                case r: Report =>
+                  r.message.level match {
+                    case org.sireum.message.Level.Error | org.sireum.message.Level.InternalError => errors += 1
+                    case org.sireum.message.Level.Warning => warnings += 1
+                    case _ =>
+                  }
+                  if (r.message.posOpt.nonEmpty) reports = reports :+ r
+                case r: Logika.Verify.Smt2Query =>
+                  obligations = obligations :+ Obligation(path, r.pos.beginLine.toInt, obligationHeader(r.info.value),
+                    r.timeInMs.toLong)
+                case _ =>
+              }
+            case Some(_) =>
+            case _ => alive = false
+          }
+        }
+      } catch {
+        case _: Throwable => alive = false
+      } finally {
+        connection.inflight = null
+      }
+      Attempt(FileResult(path, self, (System.nanoTime - t) / 1000000, errors, warnings, obligations, done), reports,
+        alive)
+    }
+
+    def cancel(): Unit = connection.cancel()
+
+    def close(): Unit = {
+      if (terminate) try connection.send(Terminate()) catch {
+        case _: Throwable =>
+      }
+      connection.close()
+    }
+  }
+
+  def run(ports: Vector[Int],
+          jobs: Vector[Job],
+          requests: (Job, org.sireum.ISZ[org.sireum.String]) => Vector[org.sireum.server.protocol.Request],
+          onResult: (FileResult, Vector[org.sireum.server.protocol.Report]) => Unit,
+          isCancelled: () => Boolean,
+          terminate: Boolean): Summary =
+    schedule(ports.size, jobs, i => new ServerWorker(i, ports(i), requests, terminate), onResult, isCancelled)
+
+  // A job whose server dies mid-way is put back on the deque of the least loaded live server, up to maxAttempts
+  // runs; idle servers wait while others are still running jobs that may come back. onResult is called once per
+  // job, with the reports of its final attempt.
+  def schedule(n: Int,
+               jobs: Vector[Job],
+               connect: Int => Worker,
+               onResult: (FileResult, Vector[org.sireum.server.protocol.Report]) => Unit,
+               isCancelled: () => Boolean,
+               maxAttempts: Int = defaultMaxAttempts): Summary = {
+    def incomplete(job: Job): FileResult = FileResult(job.path.string.value, -1, 0, 0, 0, Vector(), completed = false)
+
+    if (n <= 0) {
+      val results = for (job <- jobs) yield incomplete(job)
+      for (result <- results) onResult(result, Vector())
+      return Summary(0, 0, results, cancelled = false)
+    }
+    val start = System.nanoTime
+    val deques = Vector.fill(n)(new LinkedBlockingDeque[Job])
+    for ((job, i) <- jobs.sortBy(-_.cost).zipWithIndex) deques(i % n).addLast(job)
+    val results = new ConcurrentLinkedQueue[FileResult]
+    val workers = new ConcurrentLinkedQueue[Worker]
+    // Guarded by lock
+    val lock = new Object
+    val live = Array.fill(n)(true)
+    val attempts = new java.util.IdentityHashMap[Job, Integer]
+    var running = 0
+
+    def nextJob(self: Int): Job = {
+      while (true) {
+        val job = deques(self).pollFirst()
+        if (job != null) return job
+        var victim = -1
+        var max = 0
+        for (i <- 0 until n if i != self) {
+          val size = deques(i).size
+          if (size > max) {
+            victim = i
+            max = size
+          }
+        }
+        if (victim < 0) return null
+        val stolen = deques(victim).pollLast()
+        if (stolen != null) return stolen
+      }
+      null
+    }
+
+    def take(self: Int): Job = lock.synchronized {
+      var job = nextJob(self)
+      while (job == null && running > 0 && !isCancelled()) {
+        lock.wait(200)
+        job = nextJob(self)
+      }
+      if (job != null) {
+        running += 1
+        attempts.put(job, attempts.getOrDefault(job, 0) + 1)
+      }
+      job
+    }
+
+    // Returns whether the job was put back for another server
+    def release(self: Int, job: Job, attempt: Attempt): Boolean = lock.synchronized {
+      running -= 1
+      if (!attempt.alive) live(self) = false
+      var target = -1
+      if (!attempt.alive && !attempt.result.completed && !isCancelled() && attempts.get(job) < maxAttempts) {
+        for (i <- 0 until n if live(i) && (target < 0 || deques(i).size < deques(target).size)) target = i
+        if (target >= 0) deques(target).addLast(job)
+      }
+      lock.notifyAll()
+      target >= 0
+    }
+
+    def work(self: Int): Unit = {
+      val worker = try connect(self) catch {
+        case _: Throwable =>
+          lock.synchronized {
+            live(self) = false
+            lock.notifyAll()
+          }
+          return
+      }
+      workers.add(worker)
+      try {
+        var alive = true
+        while (alive && !isCancelled()) {
+          val job = take(self)
+          if (job == null) alive = false
+          else {
+            val attempt = try worker.verify(job) catch {
+              case _: Throwable => Attempt(incomplete(job).copy(server = self), Vector(), alive = false)
+            }
+            alive = attempt.alive
+            if (!release(self, job, attempt)) {
+              results.add(attempt.result)
+              onResult(attempt.result, attempt.reports)
+            }
+          }
+        }
+      } catch {
+        case _: Throwable =>
+      } finally {
+        lock.synchronized {
+          live(self) = false
+          lock.notifyAll()
+        }
+        worker.close()
+      }
+    }
+
+    val threads = for (i <- 0 until n) yield {
+      val t = new Thread({ () => work(i) }: Runnable, s"Sireum Project Verifier $i")
+      t.setDaemon(true)
+      t.start()
+      t
+    }
+    var cancelled = false
+    for (t <- threads) {
+      while (t.isAlive) {
+        t.join(200)
+        if (!cancelled && isCancelled()) {
+          cancelled = true
+          for (w <- workers.asScala) w.cancel()
+        }
+      }
+    }
+    for (d <- deques; job <- Iterator.continually(d.pollFirst()).takeWhile(_ != null)) {
+      val result = incomplete(job)
+      results.add(result)
+      onResult(result, Vector())
+    }
+    Summary(n, (System.nanoTime - start) / 1000000, results.asScala.toVector, cancelled || isCancelled())
+  }
+}
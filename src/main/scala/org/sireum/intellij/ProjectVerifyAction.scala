@@ -0,0 +1,183 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import com.intellij.notification.{Notification, NotificationType}
+import com.intellij.openapi.actionSystem.{AnAction, AnActionEvent}
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.fileEditor.{FileDocumentManager, FileEditorManager}
+import com.intellij.openapi.progress.{ProgressIndicator, ProgressManager, Task}
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.vfs.LocalFileSystem
+import org.sireum.forms
+
+import java.util.concurrent.atomic.AtomicInteger
+import javax.swing.DefaultListModel
+import javax.swing.event.HyperlinkEvent
+
+object ProjectVerifyAction {
+  val maxReportedObligations: Int = 20
+
+  def jobs(project: Project, root: org.sireum.Os.Path): Vector[ProjectVerifier.Job] = {
+    val isProyek = (root / "bin" / "project.cmd").isFile
+    for ((path, length) <- SlangFileIndex(project).logikaFiles) yield {
+      val p = org.sireum.Os.path(path)
+      val ext = p.ext.value
+      new ProjectVerifier.Job(p, !isProyek || ext == "sc" || ext == "cmd" || ext == "logika", length)
+    }
+  }
+
+  def startServers(sireumHome: org.sireum.Os.Path, size: Int, indicator: ProgressIndicator): Vector[(ProcessHandle, Int)] = {
+    var serverArgs = Vector[String]("server", "--message", "json")
+    if (!SireumApplicationComponent.cacheInput) {
+      serverArgs = serverArgs :+ "--no-input-cache"
+    }
+    if (!SireumApplicationComponent.cacheType) {
+      serverArgs = serverArgs :+ "--no-type-cache"
+    }
+    val command = SireumApplicationComponent.getCommand(sireumHome, serverArgs)
+    var r = Vector[(ProcessHandle, Int)]()
+    for (_ <- 0 until size if !indicator.isCanceled) {
+      val phPort = SireumApplicationComponent.getSireumProcess(sireumHome, command)
+      if (phPort._2 > 0) r = r :+ phPort
+    }
+    r
+  }
+
+  def requests(project: Project, root: org.sireum.Os.Path, configs: Map[Boolean, org.sireum.logika.Config])
+              (job: ProjectVerifier.Job, id: org.sireum.ISZ[org.sireum.String]): Vector[org.sireum.server.protocol.Request] = {
+    import org.sireum.server.protocol._
+    Vector(
+      Logika.Verify.Config(forms.LogikaFormEx.infoFlow, configs(job.isScript)),
+      if (job.isScript) Slang.Check.Script(
+        isBackground = false,
+        logikaEnabled = Util.isLogikaSupportedPlatform,
+        id = id,
+        rootDirOpt = org.sireum.Some(root.string),
+        uriOpt = org.sireum.Some(job.path.toUri),
+        content = job.path.read,
+        line = 0,
+        rewriteKindOpt = org.sireum.None(),
+        returnAST = false
+      ) else Slang.Check.Project(
+        isBackground = false,
+        id = id,
+        rootDir = root.string,
+        files = org.sireum.HashSMap.empty,
+        vfiles = org.sireum.ISZ(job.path.string),
+        line = 0,
+        rewriteUriOpt = org.sireum.None(),
+        rewriteKind = org.sireum.server.protocol.Slang.Rewrite.Kind.RenumberProofSteps,
+        returnAST = false
+      )
+    )
+  }
+
+  private def updateProblems(project: Project, paths: Set[String],
+                             reports: Vector[org.sireum.server.protocol.Report]): Unit =
+    ApplicationManager.getApplication.invokeLater { () =>
+      if (!project.isDisposed) SireumClient.sireumToolWindowFactory(project, forms => {
+        val problems = forms.problemList.getModel.asInstanceOf[DefaultListModel[SireumToolWindowFactory.Problem]]
+        if (paths.nonEmpty) for (i <- problems.size - 1 to 0 by -1) {
+          problems.getElementAt(i).value.message.posOpt match {
+            case org.sireum.Some(pos) if pos.uriOpt.nonEmpty &&
+              paths.contains(org.sireum.Os.Path.fromUri(pos.uriOpt.get).canon.value.value) => problems.remove(i)
+            case _ =>
+          }
+        }
+        for (r <- reports) problems.addElement(SireumToolWindowFactory.Problem(project, r))
+      })
+    }
+
+  def verify(project: Project): Unit = SireumApplicationComponent.getSireumHome(project) match {
+    case Some(home) =>
+      FileDocumentManager.getInstance.saveAllDocuments()
+      ProgressManager.getInstance.run(new Task.Backgroundable(project, "Verifying project", true) {
+        override def run(indicator: ProgressIndicator): Unit = {
+          val root = org.sireum.Os.path(project.getBasePath)
+          indicator.setText("Collecting Logika files ...")
+          val jobs = ProjectVerifyAction.jobs(project, root)
+          if (jobs.isEmpty) {
+            Util.notify(new Notification(SireumClient.groupId, "Verify project",
+              "No Logika files found", NotificationType.INFORMATION), project, shouldExpire = true)
+            return
+          }
+          updateProblems(project, jobs.map(_.path.canon.string.value).toSet, Vector())
+          val size = Math.min(jobs.size, Math.max(1, SireumApplicationComponent.verifyServers))
+          indicator.setText(s"Starting $size Sireum server(s) ...")
+          val servers = startServers(home, size, indicator)
+          try {
+            if (servers.isEmpty) {
+              if (!indicator.isCanceled) Util.notify(new Notification(SireumClient.groupId, SireumClient.errorTitle,
+                "Could not start Sireum servers for project verification", NotificationType.ERROR), project,
+                shouldExpire = true)
+              return
+            }
+            val configs = (for (isScript <- Vector(false, true)) yield isScript -> SireumClient.getLogikaConfig(project,
+              isBackground = false, isScript = isScript, isInterprocedural = false)).toMap
+            val done = new AtomicInteger
+            indicator.setIndeterminate(false)
+            indicator.setText(s"Verifying ${jobs.size} file(s) on ${servers.size} server(s) ...")
+            val summary = ProjectVerifier.run(servers.map(_._2), jobs, requests(project, root, configs),
+              (result, reports) => {
+                if (reports.nonEmpty) updateProblems(project, Set(), reports)
+                indicator.setFraction(done.incrementAndGet().toDouble / jobs.size)
+                indicator.setText2(result.path)
+              },
+              () => indicator.isCanceled, terminate = true)
+            val report = root / ".idea" / "sireum" / "logika-verify.txt"
+            report.up.mkdirAll()
+            report.writeOver(org.sireum.String(summary.render(maxReportedObligations)))
+            val reportPath = report.string.value
+            Util.notify(new Notification(SireumClient.groupId, "Verify project",
+              s"""<p>${summary.results.size} file(s) in ${summary.millis} ms: ${summary.errors} error(s), ${summary.incomplete} incomplete. <a href="">Open report</a></p>""",
+              if (summary.errors > 0 || summary.incomplete > 0) NotificationType.WARNING else NotificationType.INFORMATION,
+              (_: Notification, _: HyperlinkEvent) => ApplicationManager.getApplication.invokeLater { () =>
+                val vf = LocalFileSystem.getInstance.refreshAndFindFileByPath(reportPath)
+                if (vf != null && !project.isDisposed) FileEditorManager.getInstance(project).openFile(vf, true)
+              }), project, shouldExpire = false)
+          } finally {
+            for ((p, _) <- servers if p != null) SireumClient.runLater(5000)(() => if (p.isAlive) p.destroy())
+          }
+        }
+      })
+    case _ =>
+      Util.notify(new Notification(
+        SireumClient.groupId, "Sireum home not set",
+        "Please set Sireum home directory first",
+        NotificationType.INFORMATION), project, shouldExpire = true)
+  }
+}
+
+final class ProjectVerifyAction extends AnAction {
+  override def actionPerformed(e: AnActionEvent): Unit = {
+    ProjectVerifyAction.verify(e.getProject)
+  }
+
+  override def update(e: AnActionEvent): Unit = {
+    e.getPresentation.setEnabled(e.getProject != null && Util.isLogikaSupportedPlatform)
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.attribute.BasicFileAttributes
+import java.nio.file.{FileVisitResult, Files, Path, Paths, SimpleFileVisitor}
+
+// Fingerprints what `proyek ive` consumes (Sireum home, versions, module definitions and their source directory
+// layout) so that a sync can be skipped, narrowed, or resolved offline when the inputs have not changed
+object ProyekFingerprint {
+
+  sealed trait Plan
+
+  case object UpToDate extends Plan
+
+  final case class Modules(ids: Vector[String]) extends Plan
+
+  final case class Full(reason: String) extends Plan
+
+  final case class Fingerprint(sireumHome: String, versions: String, dependencies: String, modules: Map[String, String])
+
+  val maxSourceDepth: Int = 6
+
+  def file(root: org.sireum.Os.Path): Path = Paths.get(root.string.value, ".idea", "sireum", "proyek-sync.properties")
+
+  def hash(text: String): String = {
+    val digest = java.security.MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8))
+    digest.map(b => f"${b & 0xFF}%02x").mkString
+  }
+
+  def sourceDirs(root: org.sireum.Os.Path, basePath: String): String = {
+    val base = Paths.get(root.string.value).resolve(basePath)
+    if (!Files.isDirectory(base)) return ""
+    val sb = new StringBuilder
+    Files.walkFileTree(base, java.util.EnumSet.noneOf(classOf[java.nio.file.FileVisitOption]), maxSourceDepth,
+      new SimpleFileVisitor[Path] {
+        override def preVisitDirectory(dir: Path, attrs: BasicFileAttributes): FileVisitResult = {
+          val name = if (dir.getFileName == null) "" else dir.getFileName.toString
+          if (dir != base && (name.startsWith(".") || SlangFileIndex.skippedDirs.contains(name)))
+            return FileVisitResult.SKIP_SUBTREE
+          sb.append(base.relativize(dir).toString).append('\n')
+          FileVisitResult.CONTINUE
+        }
+
+        override def visitFileFailed(file: Path, exc: java.io.IOException): FileVisitResult = FileVisitResult.CONTINUE
+      })
+    sb.toString
+  }
+
+  def compute(sireumHome: org.sireum.Os.Path, root: org.sireum.Os.Path): Option[Fingerprint] = {
+    System.setProperty("org.sireum.home", sireumHome.string.value)
+    val prjOpt = org.sireum.proyek.Proyek.getProject(sireumHome, root, org.sireum.None(), org.sireum.None())
+    if (prjOpt.isEmpty) return None
+    val prj = prjOpt.get
+    val vsOpt = org.sireum.proyek.Proyek.getVersions(prj, root, org.sireum.ISZ(), org.sireum.SireumApi.versions.entries)
+    if (vsOpt.isEmpty) return None
+    val versions = vsOpt.get.toString
+    val dependencies = new StringBuilder(versions)
+    var modules = Map[String, String]()
+    for (m <- prj.modules.values) {
+      modules = modules + (m.id.value -> hash(s"$m\n${sourceDirs(root, m.basePath.value)}"))
+      dependencies.append('\n').append(m.id.value).append(':').append(m.ivyDeps.toString)
+    }
+    Some(Fingerprint(sireumHome.string.value, hash(versions), hash(dependencies.toString), modules))
+  }
+
+  def load(root: org.sireum.Os.Path): Option[Fingerprint] = {
+    val f = file(root)
+    if (!Files.isRegularFile(f)) return None
+    try {
+      val p = new java.util.Properties
+      val in = Files.newInputStream(f)
+      try p.load(in) finally in.close()
+      val modulePrefix = "module."
+      var modules = Map[String, String]()
+      for (key <- p.stringPropertyNames.toArray(new Array[String](0)) if key.startsWith(modulePrefix)) {
+        modules = modules + (key.substring(modulePrefix.length) -> p.getProperty(key))
+      }
+      Some(Fingerprint(p.getProperty("sireumHome", ""), p.getProperty("versions", ""),
+        p.getProperty("dependencies", ""), modules))
+    } catch {
+      case _: Throwable => None
+    }
+  }
+
+  def store(root: org.sireum.Os.Path, fingerprint: Fingerprint): Unit = try {
+    val f = file(root)
+    Files.createDirectories(f.getParent)
+    val p = new java.util.Properties
+    p.setProperty("sireumHome", fingerprint.sireumHome)
+    p.setProperty("versions", fingerprint.versions)
+    p.setProperty("dependencies", fingerprint.dependencies)
+    for ((id, h) <- fingerprint.modules) p.setProperty(s"module.$id", h)
+    val out = Files.newOutputStream(f)
+    try p.store(out, "Proyek sync fingerprint") finally out.close()
+  } catch {
+    case t: Throwable => SireumClient.logStackTrace(t)
+  }
+
+  def plan(root: org.sireum.Os.Path, fingerprintOpt: Option[Fingerprint], force: Boolean): Plan = {
+    val fingerprint = fingerprintOpt match {
+      case Some(fp) => fp
+      case _ => return Full("project definition or versions could not be loaded")
+    }
+    if (force) return Full("forced")
+    load(root) match {
+      case Some(old) if old.sireumHome != fingerprint.sireumHome => Full("Sireum home changed")
+      case Some(old) if old.versions != fingerprint.versions => Full("versions changed")
+      case Some(old) =>
+        val changed = (fingerprint.modules.keySet ++ old.modules.keySet).
+          filter(id => fingerprint.modules.get(id) != old.modules.get(id)).toVector.sorted
+        if (changed.isEmpty) UpToDate else Modules(changed)
+      case _ => Full("no previous sync")
+    }
+  }
+
+  // Coursier serves everything from its local cache in offline mode; only safe when dependencies are unchanged
+  def isOffline(root: org.sireum.Os.Path, fingerprintOpt: Option[Fingerprint]): Boolean =
+    fingerprintOpt.nonEmpty && load(root).exists(_.dependencies == fingerprintOpt.get.dependencies)
+}
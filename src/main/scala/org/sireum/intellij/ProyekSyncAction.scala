@@ -27,21 +27,71 @@ package org.sireum.intellij
 
 import com.intellij.configurationStore.StoreReloadManager
 import com.intellij.execution.configurations.GeneralCommandLine
-import com.intellij.execution.process.{KillableColoredProcessHandler, ProcessEvent, ProcessListener}
+import com.intellij.execution.process.KillableColoredProcessHandler
+import com.intellij.execution.ui.ConsoleViewContentType
 import com.intellij.notification.{Notification, NotificationType}
 import com.intellij.openapi.actionSystem.{AnAction, AnActionEvent}
 import com.intellij.openapi.application.ApplicationManager
 import com.intellij.openapi.progress.{ProgressIndicator, ProgressManager, Task}
 import com.intellij.openapi.project.{ProjectManager, Project => IProject}
-import com.intellij.openapi.util.Key
 
 import java.nio.charset.Charset
 import javax.swing.event.HyperlinkEvent
 
 object ProyekSyncAction {
-  def sync(ip: IProject): Unit = {
+  def sync(ip: IProject, force: Boolean = false): Unit = SireumApplicationComponent.getSireumHome(ip) match {
+    case scala.Some(home) =>
+      ProgressManager.getInstance().run(new Task.Backgroundable(ip, "Proyek") {
+        override def run(indicator: ProgressIndicator): Unit = {
+          indicator.setIndeterminate(true)
+          indicator.setText("Fingerprinting project ...")
+          val root = org.sireum.Os.path(ip.getBasePath)
+          val start = System.currentTimeMillis
+          val fingerprintOpt = try ProyekFingerprint.compute(home, root) catch {
+            case t: Throwable =>
+              SireumClient.logStackTrace(t)
+              None
+          }
+          val plan = ProyekFingerprint.plan(root, fingerprintOpt, force)
+          val offline = ProyekFingerprint.isOffline(root, fingerprintOpt)
+          val timings = Vector(("Fingerprint", System.currentTimeMillis - start))
+          plan match {
+            case ProyekFingerprint.UpToDate =>
+              SireumClient.sireumToolWindowFactory(ip, forms => {
+                forms.consoleView.clear()
+                printTimings(forms, timings, "up to date; skipped proyek ive")
+              })
+              Util.notify(new Notification(
+                SireumClient.groupId, "Proyek is up to date",
+                """<p>Nothing relevant changed since the last synchronization. <a href="">Synchronize anyway</a>?</p>""",
+                NotificationType.INFORMATION, (_: Notification, _: HyperlinkEvent) => sync(ip, force = true)),
+                ip, scala.Some(8000))
+            case _ => ApplicationManager.getApplication.invokeLater(() =>
+              ive(ip, home, plan, offline, fingerprintOpt, timings))
+          }
+        }
+      })
+    case _ =>
+      Util.notify(new Notification(
+        SireumClient.groupId, "Sireum home not set",
+        "Please set Sireum home directory first",
+        NotificationType.INFORMATION), ip, shouldExpire = true)
+  }
+
+  private def printTimings(forms: SireumToolWindowFactory.Forms, timings: Vector[(Predef.String, Long)],
+                           outcome: Predef.String): Unit = {
+    val total = timings.map(_._2).sum
+    forms.consoleView.print(timings.map(t => s"[Proyek] ${t._1}: ${t._2} ms\n").mkString +
+      s"[Proyek] Total: $total ms ($outcome)\n", ConsoleViewContentType.SYSTEM_OUTPUT)
+  }
+
+  private def ive(ip: IProject, home: org.sireum.Os.Path, plan: ProyekFingerprint.Plan, offline: Boolean,
+                  fingerprintOpt: Option[ProyekFingerprint.Fingerprint], fingerprintTimings: Vector[(Predef.String, Long)]): Unit = {
     var iproject = ip
     val basePath = ip.getBasePath
+    val isFull = plan.isInstanceOf[ProyekFingerprint.Full]
+    var timings = fingerprintTimings
+    var t = System.currentTimeMillis
     StoreReloadManager.Companion.getInstance(ip).reloadProject()
     iproject = null
     ApplicationManager.getApplication.invokeLater(() => {
@@ -55,115 +105,140 @@ object ProyekSyncAction {
           case _: Throwable =>
         }
       }
+      timings = timings :+ (("Reload project", System.currentTimeMillis - t))
       import org.sireum._
-      SireumApplicationComponent.getSireumHome(ip) match {
-        case scala.Some(home) =>
-          ProgressManager.getInstance().run(new Task.Backgroundable(iproject, "Proyek") {
-            override def run(indicator: ProgressIndicator): Unit = {
-              val srm: StoreReloadManager = StoreReloadManager.Companion.getInstance(iproject)
-              val baseDir = iproject.getBaseDir
-              try {
-                srm.blockReloadingProjectOnExternalChanges()
-                srm.scheduleProcessingChangedFiles()
-                indicator.setIndeterminate(true)
-                indicator.setText("Importing project ...")
-                val cmds = new java.util.ArrayList[Predef.String]
-                if (Os.isWin) {
-                  cmds.add("cmd")
-                  cmds.add("/c")
-                  cmds.add("sireum.bat")
-                } else {
-                  cmds.add("./sireum")
-                }
-                cmds.add("proyek")
-                cmds.add("ive")
-                cmds.add("--force")
-                if (SireumApplicationComponent.proxyHost.nonEmpty) {
-                  cmds.add("--proxy-host")
-                  cmds.add(SireumApplicationComponent.proxyHost)
-                }
-                if (SireumApplicationComponent.proxyPort.nonEmpty) {
-                  cmds.add("--proxy-port")
-                  cmds.add(SireumApplicationComponent.proxyPort)
-                }
-                if (SireumApplicationComponent.proxyUserEnvVar.nonEmpty) {
-                  cmds.add("--proxy-user-env")
-                  cmds.add(SireumApplicationComponent.proxyUserEnvVar)
-                }
-                if (SireumApplicationComponent.proxyPasswdEnvVar.nonEmpty) {
-                  cmds.add("--proxy-passwd-env")
-                  cmds.add(SireumApplicationComponent.proxyPasswdEnvVar)
-                }
-                if (SireumApplicationComponent.proxyNonHosts.nonEmpty) {
-                  cmds.add("--proxy-non-hosts")
-                  cmds.add(SireumApplicationComponent.proxyNonHosts)
-                }
-                cmds.add(iproject.getBasePath)
-                val generalCommandLine = new GeneralCommandLine(cmds)
-                generalCommandLine.setWorkDirectory((home / "bin").string.value)
-                generalCommandLine.setCharset(Charset.forName("UTF-8"))
-                val env = new java.util.HashMap[java.lang.String, java.lang.String]()
-                env.put("SIREUM_HOME", home.string.value)
-                org.sireum.Os.javaHomeOpt(org.sireum.Os.kind, org.sireum.Some(home)) match {
-                  case org.sireum.Some(p) =>
-                    env.put("JAVA_HOME", p.string.value)
-                  case _ =>
-                }
-                org.sireum.Os.scalaHomeOpt(org.sireum.Some(home)) match {
-                  case org.sireum.Some(p) =>
-                    env.put("SCALA_HOME", p.string.value)
-                  case _ =>
-                }
-                generalCommandLine.withEnvironment(env)
-                val processHandler = new KillableColoredProcessHandler(generalCommandLine)
-                SireumClient.sireumToolWindowFactory(iproject, forms => {
-                  forms.consoleView.clear()
-                  forms.consoleView.attachToProcess(processHandler)
-                  ApplicationManager.getApplication.invokeLater(() => {
-                    forms.toolWindow.activate(() => {
-                      forms.toolWindow.getContentManager.setSelectedContent(forms.toolWindow.getContentManager.findContent("Console"))
-                    })
-                  })
+      ProgressManager.getInstance().run(new Task.Backgroundable(iproject, "Proyek") {
+        override def run(indicator: ProgressIndicator): Unit = {
+          val srm: StoreReloadManager = StoreReloadManager.Companion.getInstance(iproject)
+          val baseDir = iproject.getBaseDir
+          try {
+            srm.blockReloadingProjectOnExternalChanges()
+            srm.scheduleProcessingChangedFiles()
+            indicator.setIndeterminate(true)
+            indicator.setText(plan match {
+              case ProyekFingerprint.Modules(ids) => s"Importing ${ids.size} changed module(s) ..."
+              case _ => "Importing project ..."
+            })
+            val cmds = new java.util.ArrayList[Predef.String]
+            if (Os.isWin) {
+              cmds.add("cmd")
+              cmds.add("/c")
+              cmds.add("sireum.bat")
+            } else {
+              cmds.add("./sireum")
+            }
+            cmds.add("proyek")
+            cmds.add("ive")
+            if (isFull) {
+              cmds.add("--force")
+            }
+            if (SireumApplicationComponent.proxyHost.nonEmpty) {
+              cmds.add("--proxy-host")
+              cmds.add(SireumApplicationComponent.proxyHost)
+            }
+            if (SireumApplicationComponent.proxyPort.nonEmpty) {
+              cmds.add("--proxy-port")
+              cmds.add(SireumApplicationComponent.proxyPort)
+            }
+            if (SireumApplicationComponent.proxyUserEnvVar.nonEmpty) {
+              cmds.add("--proxy-user-env")
+              cmds.add(SireumApplicationComponent.proxyUserEnvVar)
+            }
+            if (SireumApplicationComponent.proxyPasswdEnvVar.nonEmpty) {
+              cmds.add("--proxy-passwd-env")
+              cmds.add(SireumApplicationComponent.proxyPasswdEnvVar)
+            }
+            if (SireumApplicationComponent.proxyNonHosts.nonEmpty) {
+              cmds.add("--proxy-non-hosts")
+              cmds.add(SireumApplicationComponent.proxyNonHosts)
+            }
+            cmds.add(iproject.getBasePath)
+            val generalCommandLine = new GeneralCommandLine(cmds)
+            generalCommandLine.setWorkDirectory((home / "bin").string.value)
+            generalCommandLine.setCharset(Charset.forName("UTF-8"))
+            val env = new java.util.HashMap[java.lang.String, java.lang.String]()
+            env.put("SIREUM_HOME", home.string.value)
+            org.sireum.Os.javaHomeOpt(org.sireum.Os.kind, org.sireum.Some(home)) match {
+              case org.sireum.Some(p) =>
+                env.put("JAVA_HOME", p.string.value)
+              case _ =>
+            }
+            org.sireum.Os.scalaHomeOpt(org.sireum.Some(home)) match {
+              case org.sireum.Some(p) =>
+                env.put("SCALA_HOME", p.string.value)
+              case _ =>
+            }
+            SireumClient.sireumToolWindowFactory(iproject, forms => {
+              forms.consoleView.clear()
+              ApplicationManager.getApplication.invokeLater(() => {
+                forms.toolWindow.activate(() => {
+                  forms.toolWindow.getContentManager.setSelectedContent(forms.toolWindow.getContentManager.findContent("Console"))
                 })
-                processHandler.addProcessListener(new ProcessListener {
-                  override def processTerminated(event: ProcessEvent): Unit = {
-                    if (event.getExitCode == 0) {
-                      baseDir.refresh(false, true)
-                      srm.reloadProject()
-                      Util.notify(new Notification(
-                        SireumClient.groupId, "Proyek synchronized",
-                        """<p>Proyek synchronization was successful. <a href="">Restart</a>?</p>""",
-                        NotificationType.INFORMATION, (_: Notification, _: HyperlinkEvent) => {
-                          ApplicationManager.getApplication.invokeLater(() => ApplicationManager.getApplication.restart())
-                        }), null, scala.Some(8000))
-                    } else {
-                      Util.notify(new Notification(
-                        SireumClient.groupId, "Proyek failed to synchronize",
-                        "<p>Could not synchronize Proyek</p>",
-                        NotificationType.ERROR), null, shouldExpire = true)
-                    }
-                  }
+              })
+            })
 
-                  override def startNotified(event: ProcessEvent): Unit = {}
+            def runIve(isOffline: Boolean): Int = {
+              val e = new java.util.HashMap[java.lang.String, java.lang.String](env)
+              if (isOffline) e.put("COURSIER_MODE", "offline")
+              generalCommandLine.getEnvironment.remove("COURSIER_MODE")
+              val processHandler = new KillableColoredProcessHandler(generalCommandLine.withEnvironment(e))
+              SireumClient.sireumToolWindowFactory(iproject, forms => forms.consoleView.attachToProcess(processHandler))
+              processHandler.startNotify()
+              processHandler.waitFor()
+              val exitCode = processHandler.getExitCode
+              if (exitCode == null) -1 else exitCode.intValue
+            }
 
-                  override def onTextAvailable(event: ProcessEvent, outputType: Key[_]): Unit = {}
-                })
-                processHandler.startNotify()
-                processHandler.waitFor()
-              } finally {
-                if (srm.isReloadBlocked) {
-                  srm.unblockReloadingProjectOnExternalChanges()
-                }
+            t = java.lang.System.currentTimeMillis
+            var exitCode = runIve(offline)
+            timings = timings :+ ((if (offline) "proyek ive (offline dependencies)" else "proyek ive",
+              java.lang.System.currentTimeMillis - t))
+            if (exitCode != 0 && offline) {
+              t = java.lang.System.currentTimeMillis
+              exitCode = runIve(false)
+              timings = timings :+ (("proyek ive (online retry)", java.lang.System.currentTimeMillis - t))
+            }
+            if (exitCode == 0) {
+              t = java.lang.System.currentTimeMillis
+              baseDir.refresh(false, true)
+              srm.reloadProject()
+              for (fingerprint <- fingerprintOpt) ProyekFingerprint.store(Os.path(basePath), fingerprint)
+              timings = timings :+ (("Refresh", java.lang.System.currentTimeMillis - t))
+            }
+            val outcome = plan match {
+              case _ if exitCode != 0 => s"failed with exit code $exitCode"
+              case ProyekFingerprint.Modules(ids) => s"changed module(s): ${ids.mkString(", ")}"
+              case ProyekFingerprint.Full(reason) => s"full import: $reason"
+              case _ => ""
+            }
+            SireumClient.sireumToolWindowFactory(iproject, forms => printTimings(forms, timings, outcome))
+            if (exitCode == 0) {
+              if (isFull) {
+                Util.notify(new Notification(
+                  SireumClient.groupId, "Proyek synchronized",
+                  """<p>Proyek synchronization was successful. <a href="">Restart</a>?</p>""",
+                  NotificationType.INFORMATION, (_: Notification, _: HyperlinkEvent) => {
+                    ApplicationManager.getApplication.invokeLater(() => ApplicationManager.getApplication.restart())
+                  }), null, scala.Some(8000))
+              } else {
+                Util.notify(new Notification(
+                  SireumClient.groupId, "Proyek synchronized",
+                  s"<p>Proyek synchronization was successful ($outcome).</p>",
+                  NotificationType.INFORMATION), null, shouldExpire = true)
               }
+            } else {
+              Util.notify(new Notification(
+                SireumClient.groupId, "Proyek failed to synchronize",
+                "<p>Could not synchronize Proyek</p>",
+                NotificationType.ERROR), null, shouldExpire = true)
             }
-          })
-        case _ =>
-          Util.notify(new Notification(
-            SireumClient.groupId, "Sireum home not set",
-            "Please set Sireum home directory first",
-            NotificationType.INFORMATION), iproject, shouldExpire = true)
-      }
-
+          } finally {
+            if (srm.isReloadBlocked) {
+              srm.unblockReloadingProjectOnExternalChanges()
+            }
+          }
+        }
+      })
     })
   }
 }
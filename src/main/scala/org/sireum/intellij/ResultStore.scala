@@ -0,0 +1,262 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.io.{ByteArrayOutputStream, DataInputStream, DataOutputStream, EOFException}
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, StandardCopyOption, StandardOpenOption}
+import java.util.zip.CRC32
+
+object ResultStore {
+
+  final case class Record(path: String, contentHash: Long, configHash: Long,
+                          lines: Map[Int, AnalysisCache.LineSnapshot])
+
+  val magic: Int = 0x534c4b31
+  val headerSize: Int = 16
+  val maxRecordSize: Int = 64 * 1024 * 1024
+
+  def contentHash(text: String): Long =
+    (text.length.toLong << 32) | (scala.util.hashing.MurmurHash3.stringHash(text) & 0xffffffffL)
+
+  def configHash(config: org.sireum.logika.Config): Long =
+    contentHash(config.toString)
+
+  def encode(r: Record): Array[Byte] = {
+    val baos = new ByteArrayOutputStream
+    val out = new DataOutputStream(baos)
+
+    def writeString(s: String): Unit = {
+      val bytes = s.getBytes(StandardCharsets.UTF_8)
+      out.writeInt(bytes.length)
+      out.write(bytes)
+    }
+
+    writeString(r.path)
+    out.writeLong(r.contentHash)
+    out.writeLong(r.configHash)
+    out.writeInt(r.lines.size)
+    for ((line, ls) <- r.lines) {
+      out.writeInt(line)
+      out.writeInt(ls.consoles.size)
+      for (c <- ls.consoles) {
+        out.writeInt(c.level.ordinal.toInt)
+        out.writeInt(c.column)
+        writeString(c.message)
+      }
+      out.writeInt(ls.summonings.size)
+      for (c <- ls.summonings) {
+        writeString(c.messageHeader)
+        writeString(c.info)
+        out.writeInt(c.offset)
+        out.writeBoolean(c.ok)
+        writeString(c.message)
+      }
+      out.writeInt(ls.hints.size)
+      for (c <- ls.hints) {
+        out.writeInt(c.kindOpt.map(_.ordinal.toInt).getOrElse(-1))
+        writeString(c.messageHeader)
+        out.writeInt(c.offset)
+        writeString(c.message)
+        out.writeBoolean(c.terminated)
+        out.writeBoolean(c.isError)
+      }
+    }
+    out.flush()
+    baos.toByteArray
+  }
+
+  def decode(bytes: Array[Byte]): Record = {
+    val in = new DataInputStream(new java.io.ByteArrayInputStream(bytes))
+
+    def readString(): String = {
+      val n = in.readInt()
+      if (n < 0 || n > bytes.length) throw new EOFException
+      val a = new Array[Byte](n)
+      in.readFully(a)
+      new String(a, StandardCharsets.UTF_8)
+    }
+
+    def level(n: Int): org.sireum.message.Level.Type = org.sireum.message.Level.byOrdinal(org.sireum.Z(n)) match {
+      case org.sireum.Some(l) => l
+      case _ => throw new EOFException
+    }
+
+    def kindOpt(n: Int): Option[org.sireum.server.protocol.Logika.Verify.Info.Kind.Type] =
+      if (n < 0) None else org.sireum.server.protocol.Logika.Verify.Info.Kind.byOrdinal(org.sireum.Z(n)) match {
+        case org.sireum.Some(k) => Some(k)
+        case _ => throw new EOFException
+      }
+
+    val path = readString()
+    val contentHash = in.readLong()
+    val configHash = in.readLong()
+    var lines = Map[Int, AnalysisCache.LineSnapshot]()
+    for (_ <- 0 until in.readInt()) {
+      val line = in.readInt()
+      val consoles = for (_ <- (0 until in.readInt()).toVector) yield
+        AnalysisCache.ConsoleSnapshot(level(in.readInt()), in.readInt(), readString())
+      val summonings = for (_ <- (0 until in.readInt()).toVector) yield
+        AnalysisCache.SummoningSnapshot(readString(), readString(), in.readInt(), in.readBoolean(), readString())
+      val hints = for (_ <- (0 until in.readInt()).toVector) yield
+        AnalysisCache.HintSnapshot(kindOpt(in.readInt()), readString(), in.readInt(), readString(), in.readBoolean(),
+          in.readBoolean())
+      lines = lines + (line -> AnalysisCache.LineSnapshot(consoles, summonings, hints))
+    }
+    Record(path, contentHash, configHash, lines)
+  }
+}
+
+final class ResultStore(file: Path, maxBytes: => Long) {
+
+  import ResultStore._
+
+  private val records = new java.util.LinkedHashMap[String, Record]
+  private var loaded = false
+  private var closed = false
+
+  def get(path: String, contentHash: Long, configHash: => Long): Option[Map[Int, AnalysisCache.LineSnapshot]] = synchronized {
+    load()
+    val r = records.get(path)
+    if (r != null && r.contentHash == contentHash && r.configHash == configHash) Some(r.lines) else None
+  }
+
+  def put(r: Record): Unit = synchronized {
+    if (closed) return
+    load()
+    records.remove(r.path)
+    records.put(r.path, r)
+    try {
+      append(Vector(r), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+      if (Files.size(file) > maxBytes) compact()
+    } catch {
+      case t: Throwable => SireumClient.logStackTrace(t)
+    }
+  }
+
+  def close(): Unit = synchronized {
+    closed = true
+    records.clear()
+  }
+
+  private def load(): Unit = {
+    if (loaded) return
+    loaded = true
+    if (!Files.isRegularFile(file)) return
+    var fc: FileChannel = null
+    try {
+      fc = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+      val size = fc.size
+      val header = ByteBuffer.allocate(headerSize)
+      var position = 0L
+      var ok = true
+      while (ok && position + headerSize <= size) {
+        header.clear()
+        while (header.hasRemaining && fc.read(header, position + header.position) > 0) {}
+        header.flip()
+        val m = header.getInt
+        val length = header.getInt
+        val crc = header.getLong
+        if (m != magic || length < 0 || length > maxRecordSize || position + headerSize + length > size) {
+          ok = false
+        } else {
+          val payload = ByteBuffer.allocate(length)
+          while (payload.hasRemaining && fc.read(payload, position + headerSize + payload.position) > 0) {}
+          val bytes = payload.array
+          val c = new CRC32
+          c.update(bytes)
+          if (c.getValue != crc) {
+            ok = false
+          } else {
+            try {
+              val r = decode(bytes)
+              records.remove(r.path)
+              records.put(r.path, r)
+              position += headerSize + length
+            } catch {
+              case _: Throwable => ok = false
+            }
+          }
+        }
+      }
+      if (position < size) fc.truncate(position)
+    } catch {
+      case t: Throwable =>
+        SireumClient.logStackTrace(t)
+        records.clear()
+        try Files.deleteIfExists(file) catch {
+          case _: Throwable =>
+        }
+    } finally {
+      if (fc != null) fc.close()
+    }
+  }
+
+  private def compact(): Unit = {
+    var rs = Vector[Record]()
+    var encoded = Vector[Array[Byte]]()
+    var total = 0L
+    val values = records.values.toArray(new Array[Record](0)).reverseIterator
+    while (values.hasNext) {
+      val r = values.next()
+      val bytes = encode(r)
+      if (total + headerSize + bytes.length <= maxBytes / 2) {
+        total += headerSize + bytes.length
+        rs = r +: rs
+        encoded = bytes +: encoded
+      } else {
+        records.remove(r.path)
+      }
+    }
+    val temp = file.resolveSibling(s"${file.getFileName}.tmp")
+    write(temp, encoded, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+  }
+
+  private def append(rs: Vector[Record], options: StandardOpenOption*): Unit =
+    write(file, rs.map(encode), options: _*)
+
+  private def write(path: Path, payloads: Vector[Array[Byte]], options: StandardOpenOption*): Unit = {
+    Files.createDirectories(path.getParent)
+    val fc = FileChannel.open(path, options: _*)
+    try {
+      for (bytes <- payloads) {
+        val c = new CRC32
+        c.update(bytes)
+        val header = ByteBuffer.allocate(headerSize)
+        header.putInt(magic).putInt(bytes.length).putLong(c.getValue)
+        header.flip()
+        val buffers = Array(header, ByteBuffer.wrap(bytes))
+        while (buffers(1).hasRemaining) fc.write(buffers)
+      }
+      fc.force(false)
+    } finally {
+      fc.close()
+    }
+  }
+}
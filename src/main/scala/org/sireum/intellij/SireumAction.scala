@@ -46,7 +46,7 @@ final class SlangCheckActionFile extends SireumAction {
     val project = e.getProject
     val editor = FileEditorManager.getInstance(project).getSelectedTextEditor
     if (editor != null) e.getPresentation.setEnabledAndVisible(project != null &&
-      Util.isSireumOrLogikaFile(project)(org.sireum.String(editor.getDocument.getText))._1)
+      Util.isSireumOrLogikaFile(project)._1)
   }
 
   override def actionPerformed(e: AnActionEvent): Unit = {
@@ -89,7 +89,7 @@ trait SireumOnlyAction extends SireumAction {
     val editor = FileEditorManager.
       getInstance(project).getSelectedTextEditor
     if (editor != null) e.getPresentation.setEnabledAndVisible(project != null &&
-      Util.isSireumOrLogikaFile(project)(org.sireum.String(editor.getDocument.getText))._1)
+      Util.isSireumOrLogikaFile(project)._1)
   }
 }
 
@@ -63,6 +63,13 @@ object SireumApplicationComponent {
   private val proxyPasswdEnvVarKey: String = sireumKey + "proxyPasswd"
   private val proxyNonHostsKey: String = sireumKey + "proxyNonHosts"
   private val useNativeKey: String = sireumKey + "native"
+  private val analysisCacheEntriesKey: String = sireumKey + "analysisCacheEntries"
+  private val analysisCacheMegabytesKey: String = sireumKey + "analysisCacheMegabytes"
+  private val analysisResultsMegabytesKey: String = sireumKey + "analysisResultsMegabytes"
+  private val spillStoreMegabytesKey: String = sireumKey + "spillStoreMegabytes"
+  private val metricsEnabledKey: String = sireumKey + "metricsEnabled"
+  private val verifyServersKey: String = sireumKey + "verifyServers"
+  private val validatedSireumHomeKey: String = sireumKey + "validatedHome"
 
   private val isDev: Boolean = "false" != System.getProperty("org.sireum.ive.dev")
   private val dev: String = if (isDev) "-dev" else ""
@@ -87,6 +94,12 @@ object SireumApplicationComponent {
   private[intellij] var proxyPasswdEnvVar: String = ""
   private[intellij] var proxyNonHosts: String = ""
   private[intellij] var useNative: Boolean = false
+  private[intellij] var analysisCacheEntries: Int = 256
+  private[intellij] var analysisCacheMegabytes: Int = 64
+  private[intellij] var analysisResultsMegabytes: Int = 16
+  private[intellij] var spillStoreMegabytes: Int = 256
+  @volatile private[intellij] var metricsEnabled: Boolean = false
+  private[intellij] var verifyServers: Int = 2
 
   private[intellij] val platform: String = org.sireum.Os.kind match {
     case org.sireum.Os.Kind.Mac => "mac"
@@ -182,28 +195,52 @@ object SireumApplicationComponent {
       "-Dfile.encoding=UTF-8", "-Dorg.sireum.silenthalt=true", "-server", "-jar", sireumJarPath.string.value) ++ args
   }
 
+  val serverStartTimeoutInMs: Long = 10000
+
+  // Servers hand over their pid and port through the single .server.txt in SIREUM_HOME, so starts are serialized
+  private val serverFileLock = new Object
+
   def getSireumProcess(sireumHome: org.sireum.Os.Path,
-                       command: Seq[String]): (ProcessHandle, Int) = {
+                       command: Seq[String]): (ProcessHandle, Int) = serverFileLock.synchronized {
+    import java.nio.file.{FileSystems, StandardWatchEventKinds}
     val server = sireumHome / ".server.txt"
     if (!server.exists) {
-      val pb = new ProcessBuilder(command.toArray: _*)
-      pb.environment().put("SIREUM_HOME", sireumHome.string.value)
-      pb.start()
-      var i = 0
-      while (!server.exists && i < 100) {
-        try {
-          i += 1
-          Thread.sleep(100)
-        } catch {
-          case _: Throwable =>
+      val dir = java.nio.file.Paths.get(sireumHome.string.value)
+      val watcher = FileSystems.getDefault.newWatchService
+      try {
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY)
+        val pb = new ProcessBuilder(command.toArray: _*)
+        pb.environment().put("SIREUM_HOME", sireumHome.string.value)
+        pb.redirectErrorStream(true)
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        val p = pb.start()
+        val deadline = System.currentTimeMillis + serverStartTimeoutInMs
+        var remaining = serverStartTimeoutInMs
+        while (!isServerFileReady(server) && remaining > 0 && p.isAlive) {
+          val key = watcher.poll(remaining, java.util.concurrent.TimeUnit.MILLISECONDS)
+          if (key != null) {
+            key.pollEvents()
+            key.reset()
+          }
+          remaining = deadline - System.currentTimeMillis
         }
+      } catch {
+        case _: InterruptedException =>
+      } finally {
+        watcher.close()
       }
     }
-    val Array(pid, port) = server.read.value.split(':')
+    if (!isServerFileReady(server)) return (null, -1)
+    val Array(pid, port) = server.read.value.trim.split(':')
     server.removeAll()
     (ProcessHandle.of(pid.toLong).orElse(null), port.toInt)
   }
 
+  private def isServerFileReady(server: org.sireum.Os.Path): Boolean =
+    server.exists && (try server.read.value.trim.split(':').length == 2 catch {
+      case _: Throwable => false
+    })
+
   private def runSireum(d: org.sireum.Os.Path,
                         vmArgs: Seq[String],
                         envVars: scala.collection.mutable.LinkedHashMap[String, String],
@@ -233,10 +270,16 @@ object SireumApplicationComponent {
                  vmArgs: Seq[String] = this.vmArgs,
                  envVars: scala.collection.mutable.LinkedHashMap[String, String] = this.envVars): Option[org.sireum.Os.Path] = {
     if (path == null) return None
+    val jar = new File(path.string.value, "bin" + File.separator + "sireum.jar")
+    val validation = s"${path.string.value}|${jar.lastModified}|${vmArgs.mkString(" ")}|" +
+      envVars.map(p => s"${p._1}=${p._2}").mkString(";")
+    val pc = PropertiesComponent.getInstance
+    if (jar.isFile && validation == pc.getValue(validatedSireumHomeKey)) return Some(path)
     runSireum(path, vmArgs, envVars, None, Seq()) match {
       case Some(s) =>
         if (s.linesIterator.exists(
           _.trim == "Sireum: A High Assurance System Engineering Platform")) {
+          if (jar.isFile) pc.setValue(validatedSireumHomeKey, validation)
           Some(path)
         } else None
       case _ => None
@@ -284,6 +327,12 @@ object SireumApplicationComponent {
     proxyPasswdEnvVar = pc.getValue(proxyPasswdEnvVarKey, proxyPasswdEnvVar)
     proxyNonHosts = pc.getValue(proxyNonHostsKey, proxyNonHosts)
     useNative = pc.getBoolean(useNativeKey, useNative)
+    analysisCacheEntries = pc.getInt(analysisCacheEntriesKey, analysisCacheEntries)
+    analysisCacheMegabytes = pc.getInt(analysisCacheMegabytesKey, analysisCacheMegabytes)
+    analysisResultsMegabytes = pc.getInt(analysisResultsMegabytesKey, analysisResultsMegabytes)
+    spillStoreMegabytes = pc.getInt(spillStoreMegabytesKey, spillStoreMegabytes)
+    metricsEnabled = pc.getBoolean(metricsEnabledKey, metricsEnabled)
+    verifyServers = pc.getInt(verifyServersKey, verifyServers)
   }
 
   def saveConfiguration(): Unit = {
@@ -306,6 +355,12 @@ object SireumApplicationComponent {
     pc.setValue(proxyPasswdEnvVarKey, proxyPasswdEnvVar)
     pc.setValue(proxyNonHostsKey, proxyNonHosts)
     pc.setValue(useNativeKey, useNative.toString)
+    pc.setValue(analysisCacheEntriesKey, analysisCacheEntries.toString)
+    pc.setValue(analysisCacheMegabytesKey, analysisCacheMegabytes.toString)
+    pc.setValue(analysisResultsMegabytesKey, analysisResultsMegabytes.toString)
+    pc.setValue(spillStoreMegabytesKey, spillStoreMegabytes.toString)
+    pc.setValue(metricsEnabledKey, metricsEnabled.toString)
+    pc.setValue(verifyServersKey, verifyServers.toString)
   }
 }
 
@@ -28,7 +28,7 @@ package org.sireum.intellij
 import com.intellij.ide.plugins.PluginManager
 import com.intellij.notification.{Notification, NotificationType}
 import com.intellij.openapi.actionSystem._
-import com.intellij.openapi.application.{ApplicationManager, TransactionGuard}
+import com.intellij.openapi.application.{ApplicationManager, ReadAction, TransactionGuard}
 import com.intellij.openapi.editor.Editor
 import com.intellij.openapi.editor.colors.{EditorFontType, TextAttributesKey}
 import com.intellij.openapi.editor.event._
@@ -41,22 +41,23 @@ import com.intellij.openapi.util._
 import com.intellij.openapi.vfs.{LocalFileSystem, VirtualFile}
 import com.intellij.openapi.wm.StatusBarWidget.{IconPresentation, WidgetPresentation}
 import com.intellij.openapi.wm.impl.ToolWindowImpl
-import com.intellij.openapi.wm.{StatusBar, StatusBarWidget, ToolWindowManager, WindowManager}
+import com.intellij.openapi.wm.{StatusBar, StatusBarWidget, WindowManager}
 import com.intellij.ui.JBColor
-import org.jetbrains.plugins.terminal.TerminalToolWindowManager
 import org.sireum.forms
 import org.sireum.forms.LogikaFormEx
 import org.sireum.intellij.logika.LogikaConfigurable
+import org.sireum.intellij.smtlib.SMTLIBv2Portfolio
 import org.sireum.logika.{Smt2, Smt2Config, Smt2Invoke, Smt2Query}
 import org.sireum.message.Level
 import org.sireum.server.protocol.Analysis
 
 import java.awt.font.TextAttribute
 import java.awt.{Color, Font}
-import java.io.{BufferedReader, BufferedWriter, ByteArrayOutputStream, IOException, InputStream, InputStreamReader, OutputStreamWriter, Reader, Writer}
-import java.net.{InetAddress, Socket}
+import java.io.{FilterOutputStream, OutputStreamWriter, Writer}
+import java.net.{InetAddress, InetSocketAddress, Socket}
+import java.nio.channels.{Channels, SocketChannel}
 import java.util.concurrent._
-import javax.swing.event.HyperlinkEvent
+import javax.swing.event.{HyperlinkEvent, PopupMenuEvent, PopupMenuListener}
 import javax.swing.{DefaultListModel, Icon, JComponent, JMenu, JMenuItem, JPopupMenu, JSplitPane}
 
 object SireumClient {
@@ -74,8 +75,8 @@ object SireumClient {
 
     def clearCache(kind: Analysis.Cache.Kind.Type): Unit = {
       kind match {
-        case Analysis.Cache.Kind.All => cachedAnalysisData.clear()
-        case Analysis.Cache.Kind.Transitions => cachedAnalysisData.clear()
+        case Analysis.Cache.Kind.All => analysisCache.clear()
+        case Analysis.Cache.Kind.Transitions => analysisCache.clear()
         case _ =>
       }
       SireumClient.queue.add(Vector((true, org.sireum.server.protocol.JSON.fromRequest(
@@ -99,8 +100,18 @@ object SireumClient {
       val persistentItem = new JMenuItem("Persistent")
       persistentItem.addActionListener { _ => clearCache(Analysis.Cache.Kind.Persistent) }
       cacheMenu.add(persistentItem)
+      val cacheStatsItem = new JMenuItem(analysisCache.stats)
+      cacheStatsItem.setEnabled(false)
       menu = new JPopupMenu("Sireum")
       menu.add(cacheMenu)
+      menu.add(cacheStatsItem)
+      menu.addPopupMenuListener(new PopupMenuListener {
+        override def popupMenuWillBecomeVisible(e: PopupMenuEvent): Unit = cacheStatsItem.setText(analysisCache.stats)
+
+        override def popupMenuWillBecomeInvisible(e: PopupMenuEvent): Unit = {}
+
+        override def popupMenuCanceled(e: PopupMenuEvent): Unit = {}
+      })
       val allItem = new JMenuItem("Clear all Sireum caches")
       allItem.addActionListener { _ => clearCache(Analysis.Cache.Kind.All) }
       menu.add(allItem)
@@ -152,10 +163,14 @@ object SireumClient {
   val gutterLogikaErrorIcon: Icon = IconLoader.getIcon("/icon/gutter-logika-error.png")
   val verifiedInfoIcon: Icon = IconLoader.getIcon("/icon/logika-verified-info.png")
   val sireumGrayIcon: Icon = IconLoader.getIcon("/icon/sireum-gray.png")
-  val editorMap: scala.collection.mutable.Map[org.sireum.ISZ[org.sireum.String], (Project, VirtualFile, Editor, String, Boolean)] = scala.collection.mutable.Map()
+  val editorMap: scala.collection.concurrent.Map[org.sireum.ISZ[org.sireum.String], (Project, VirtualFile, Editor, String, Boolean)] = scala.collection.concurrent.TrieMap()
   val sireumKey = new Key[EditorEnabled.type]("Sireum")
-  val analysisDataKey = new Key[(scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]], DefaultListModel[Object], scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]], scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]], scala.collection.mutable.HashSet[Int])]("Analysis Data")
+  val dirtyRegionKey = new Key[DirtyRegion]("Sireum Dirty Region")
+  val regionScopes: scala.collection.concurrent.Map[org.sireum.ISZ[org.sireum.String], RegionScope] = scala.collection.concurrent.TrieMap()
+  val analysisDataKey = new Key[(scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]], DefaultListModel[Object], scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]], scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]], CoverageRegions)]("Analysis Data")
   val statusKey = new Key[Boolean]("Sireum Analysis Status")
+  val docChangeKey = new Key[ScheduledFuture[_]]("Sireum Document Change")
+  val lastEditKey = new Key[java.lang.Long]("Sireum Last Edit")
   val reportItemKey = new Key[ReportItem]("Sireum Report Item")
   val coverageTextAttributes = new TextAttributes(null,
     createCoverageColor(LogikaFormEx.coverageIntensity), null, EffectType.BOXED, Font.PLAIN)
@@ -167,11 +182,17 @@ object SireumClient {
   val smt2SolverPrefix = "; Solver: "
   val smt2SolverArgsPrefix = "; Arguments: "
   val smt2SolverAndArgsPrefix = "; Solvers and arguments:"
-  val smt2TabName = "Local"
 
-  var docChange: Option[(Long, () => Unit)] = None
-  var request: Option[Request] = None
+  val pendingRequests: scala.collection.concurrent.Map[(Project, String), Request] = scala.collection.concurrent.TrieMap()
+  val requestTimers: scala.collection.concurrent.Map[(Project, String), ScheduledFuture[_]] = scala.collection.concurrent.TrieMap()
+  val requestSeq: java.util.concurrent.atomic.AtomicLong = new java.util.concurrent.atomic.AtomicLong
+  @volatile var animator: ScheduledFuture[_] = null
+  val animationFrameInMs: Long = 175
+  val statusUpdateInMs: Long = 60000
   var processInit: Option[(ProcessHandle, org.sireum.Os.Path)] = None
+  @volatile var clientLog: ClientLog = _
+  @volatile var clientLogPath: java.nio.file.Path = _
+  private val clientLogLock = new Object
   var dividerWeight: Double = .2
   var tooltipMessageOpt: Option[String] = None
   var tooltipBalloonOpt: Option[Balloon] = None
@@ -182,34 +203,80 @@ object SireumClient {
   val statusRequest: Vector[(Boolean, String)] = Vector(
     (false, org.sireum.server.protocol.JSON.fromRequest(org.sireum.server.protocol.Status.Request(), true).value)
   )
+  val warmupRequestId: org.sireum.ISZ[org.sireum.String] = org.sireum.ISZ(org.sireum.String("warmup"))
+  val warmupContent: String =
+    """// #Sireum #Logika
+      |import org.sireum._
+      |
+      |val x: Z = 1
+      |assert(x + 1 == 2)
+      |""".stripMargin
+  var serverStartTime: Long = 0
   val terminateRequest: Vector[(Boolean, String)] = Vector(
     (true, org.sireum.server.protocol.JSON.fromRequest(org.sireum.server.protocol.Terminate(), true).value)
   )
   lazy val defaultFrame: Int = icons.length / 2 + 1
   lazy val statusBarWidget: SireumStatusWidget = new SireumStatusWidget
-  val cachedAnalysisData: ConcurrentHashMap[(String, Long), (scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]], scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]], scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]])] = new ConcurrentHashMap
+  val analysisCache: AnalysisCache = new AnalysisCache(SireumApplicationComponent.analysisCacheEntries,
+    SireumApplicationComponent.analysisCacheMegabytes * 1024L * 1024L)
   var usedMemory: org.sireum.Z = 0
-  var shutdown: Boolean = false
+  @volatile var shutdown: Boolean = false
   var queue: LinkedBlockingQueue[Vector[(Boolean, String)]] = new LinkedBlockingQueue
   var lastStatusUpdate: Long = System.currentTimeMillis
   var socket: Socket = null
-  var ir: Reader = null
+  var channel: SocketChannel = null
   var ow: Writer = null
+  val bytesSent: java.util.concurrent.atomic.AtomicLong = new java.util.concurrent.atomic.AtomicLong
+  val requestsSent: java.util.concurrent.atomic.AtomicLong = new java.util.concurrent.atomic.AtomicLong
+  val maxPendingFrames: Int = 4096
+  val frames: ArrayBlockingQueue[Option[Future[Frame]]] = new ArrayBlockingQueue(maxPendingFrames)
+  val decodePool: ExecutorService = Executors.newFixedThreadPool(
+    scala.math.max(1, scala.math.min(4, Runtime.getRuntime.availableProcessors / 2)), (r: Runnable) => {
+      val t = new Thread(r, "Sireum Response Decoder")
+      t.setDaemon(true)
+      t
+    })
+  val edtFrameInMs: Int = 16
+  val maxEdtBatchSize: Int = 1024
+  val pendingResults: java.util.ArrayList[(org.sireum.ISZ[org.sireum.String], () => Unit)] = new java.util.ArrayList
+  var edtFlushScheduled: Boolean = false
+  var edtFlushPosted: Boolean = false
 
   var responseThread: Thread = null
   var requestThread: Thread = null
+  var dispatchThread: Thread = null
 
   def isSocketAlive: Boolean = socket != null && !socket.isClosed && !socket.isInputShutdown && !socket.isOutputShutdown
 
-  def processResponse(s: String): Unit = {
+  final case class Frame(text: String, responseOpt: Option[org.sireum.server.protocol.Response], isValid: Boolean)
+
+  def decodeFrame(s: String): Frame = {
     val trimmed = s.trim
+    if (trimmed.startsWith("""{  "type" : """)) {
+      try {
+        Metrics.timeDecode(org.sireum.server.protocol.JSON.toResponse(trimmed)) match {
+          case org.sireum.Either.Left(r) => Frame(s, Some(r), isValid = true)
+          case org.sireum.Either.Right(_) => Frame(s, None, isValid = false)
+        }
+      } catch {
+        case _: Throwable => Frame(s, None, isValid = false)
+      }
+    } else {
+      Frame(s, None, isValid = true)
+    }
+  }
+
+  def processResponse(s: String): Unit = processFrame(decodeFrame(s))
+
+  def processFrame(frame: Frame): Unit = {
+    val s = frame.text
     var shouldLog = false
     var hasError = false
 
     def err(): Unit = {
       shouldLog = true
       hasError = true
-      val msg = s"Invalid server message: $trimmed"
+      val msg = s"Invalid server message: ${s.trim}"
       notifyHelper(scala.None, scala.None,
         org.sireum.server.protocol.Report(org.sireum.ISZ(),
           org.sireum.message.Message(org.sireum.message.Level.InternalError, org.sireum.None(),
@@ -217,25 +284,91 @@ object SireumClient {
       )
     }
 
-    if (trimmed.startsWith("""{  "type" : """)) {
-      try {
-        org.sireum.server.protocol.JSON.toResponse(trimmed) match {
-          case org.sireum.Either.Left(r) =>
-            r match {
-              case _: org.sireum.server.protocol.Status.Response =>
-              case _ => shouldLog = true
-            }
-            processResult(r)
-          case org.sireum.Either.Right(_) => err()
+    frame.responseOpt match {
+      case Some(r) =>
+        r match {
+          case _: org.sireum.server.protocol.Status.Response =>
+          case _ => shouldLog = true
         }
-      } catch {
-        case _: Throwable => err()
-      }
-    } else {
-      if (trimmed.nonEmpty) shouldLog = true
+        try processResult(r) catch {
+          case _: Throwable => err()
+        }
+      case _ =>
+        if (!frame.isValid) err()
+        else if (s.trim.nonEmpty) shouldLog = true
     }
     if (shouldLog) writeLog(isRequest = false, if (hasError) s"Error occurred when processing response: $s" else s)
+  }
 
+  def applyOnEdt(id: org.sireum.ISZ[org.sireum.String], f: () => Unit): Unit = {
+    var schedule = false
+    var post = false
+    pendingResults.synchronized {
+      pendingResults.add((id, f))
+      if (!edtFlushScheduled) {
+        edtFlushScheduled = true
+        schedule = true
+      }
+      if (!edtFlushPosted && pendingResults.size >= maxEdtBatchSize) {
+        edtFlushPosted = true
+        post = true
+      }
+    }
+    if (schedule) runLater(edtFrameInMs)(() => ApplicationManager.getApplication.invokeLater(() => flushResults()))
+    if (post) ApplicationManager.getApplication.invokeLater(() => flushResults())
+  }
+
+  def flushResults(): Unit = {
+    Metrics.sampleQueueDepth()
+    val batch = pendingResults.synchronized {
+      val r = new java.util.ArrayList(pendingResults)
+      pendingResults.clear()
+      edtFlushScheduled = false
+      edtFlushPosted = false
+      r
+    }
+    if (batch.isEmpty) return
+    val groups = scala.collection.mutable.LinkedHashMap[org.sireum.ISZ[org.sireum.String], Vector[() => Unit]]()
+    for (i <- 0 until batch.size) {
+      val (id, f) = batch.get(i)
+      groups(id) = groups.getOrElse(id, Vector()) :+ f
+    }
+    for (fs <- groups.values; f <- fs) try f() catch {
+      case t: Throwable => logStackTrace(t)
+    }
+    paintGutters()
+    paintCoverage()
+  }
+
+  private val gutterEditors = scala.collection.mutable.LinkedHashMap[Editor, LineGutters]()
+
+  def lineGutters(editor: Editor): LineGutters = gutterEditors.getOrElseUpdate(editor, new LineGutters)
+
+  def dropGutters(editor: Editor, lineOpt: Option[Int]): Unit = lineOpt match {
+    case Some(line) => for (gutters <- gutterEditors.get(editor)) gutters.remove(line)
+    case _ => gutterEditors.remove(editor)
+  }
+
+  def paintGutters(): Unit = for (editor <- gutterEditors.keys.toVector) paintGutters(editor)
+
+  def paintGutters(editor: Editor): Unit = for (gutters <- gutterEditors.remove(editor)) try {
+    if (!editor.isDisposed && !gutters.isEmpty) gutters.paint(editor.getMarkupModel, getAnalysisData(editor)._1)
+  } catch {
+    case t: Throwable => logStackTrace(t)
+  }
+
+  private val coverageEditors = scala.collection.mutable.LinkedHashMap[Editor, CoverageRegions]()
+
+  def paintCoverage(): Unit = {
+    for ((editor, regions) <- coverageEditors) try {
+      val q = editor.getUserData(analysisDataKey)
+      if (!editor.isDisposed && q != null && (q._5 eq regions)) {
+        regions.paint(editor.getMarkupModel, -1, coverageTextAttributes, CoverageReportItem)
+      }
+    } catch {
+      case t: Throwable => logStackTrace(t)
+    }
+    coverageEditors.clear()
   }
 
   def createCoverageColor(intensity: Int): JBColor =
@@ -243,59 +376,79 @@ object SireumClient {
 
   final case class Request(time: Long, requestId: org.sireum.ISZ[org.sireum.String],
                            project: Project, file: VirtualFile, editor: Editor,
-                           input: String, msgGen: () => Vector[String], isInterprocedural: Boolean)
+                           input: String, msgGen: () => Vector[String], isInterprocedural: Boolean, readyTime: Long)
+
+  final case class DirtyRegion(beginLine: Int, endLine: Int, linesShifted: Boolean)
+
+  final case class RegionScope(beginLine: Int, endLine: Int, touched: scala.collection.mutable.HashSet[Int])
 
   def runLater[T](delayInMs: Int)(f: Runnable): Unit = singleExecutor.schedule(f, delayInMs, TimeUnit.MILLISECONDS)
 
-  def shutdownServer(): Unit = editorMap.synchronized {
-    this.synchronized {
-      queue.clear()
-      request = None
-      editorMap.clear()
-      if (ow != null) try {
-        val content = terminateRequest.head._2
-        ow.write(content)
-        ow.flush()
-        writeLog(isRequest = true, content)
+  def shutdownServer(): Unit = this.synchronized {
+    queue.clear()
+    pendingRequests.clear()
+    Metrics.serverShutdown()
+    for (timer <- requestTimers.values) timer.cancel(false)
+    requestTimers.clear()
+    regionScopes.clear()
+    if (animator != null) {
+      animator.cancel(false)
+      animator = null
+    }
+    editorMap.clear()
+    if (ow != null) try {
+      val content = terminateRequest.head._2
+      ow.write(content)
+      ow.flush()
+      writeLog(isRequest = true, content)
+    } catch {
+      case _: Throwable =>
+    }
+    try socket.close() catch {
+      case _: Throwable =>
+    }
+    try channel.close() catch {
+      case _: Throwable =>
+    }
+    try ow.close() catch {
+      case _: Throwable =>
+    }
+    channel = null
+    ow = null
+    socket = null
+    frames.clear()
+    processInit.foreach(p => runLater(5000)(() => if (p._1.isAlive()) p._1.destroy()))
+    processInit = None
+    clientLogLock.synchronized {
+      if (clientLog != null) clientLog.close()
+      clientLog = null
+      clientLogPath = null
+    }
+    if (responseThread != null) {
+      val rt = responseThread
+      responseThread = null
+      try {
+        rt.interrupt()
       } catch {
         case _: Throwable =>
       }
-      try socket.close() catch {
-        case _: Throwable =>
-      }
-      try ir.close() catch {
-        case _: Throwable =>
-      }
-      try ow.close() catch {
+    }
+    if (requestThread != null) {
+      val rt = requestThread
+      requestThread = null
+      try {
+        rt.interrupt()
+      } catch {
         case _: Throwable =>
       }
-      ir = null
-      ow = null
-      socket = null
-      processInit.foreach(p => runLater(5000)(() => if (p._1.isAlive()) p._1.destroy()))
-      processInit = None
-      if (responseThread != null) {
-        val rt = responseThread
-        responseThread = null
-        try {
-          rt.interrupt()
-        } catch {
-          case _: Throwable =>
-        }
-      }
-      if (requestThread != null) {
-        val rt = requestThread
-        requestThread = null
-        try {
-          rt.interrupt()
-        } catch {
-          case _: Throwable =>
-        }
-      }
-      shutdown = true
-      for (frame <- WindowManager.getInstance.getAllProjectFrames) {
-        frame.getStatusBar.removeWidget(statusBarWidget.ID())
-      }
+    }
+    if (dispatchThread != null) {
+      dispatchThread = null
+      frames.offer(None)
+    }
+    shutdown = true
+    for (frame <- WindowManager.getInstance.getAllProjectFrames) {
+      frame.getStatusBar.removeWidget(statusBarWidget.ID())
     }
   }
 
@@ -312,17 +465,33 @@ object SireumClient {
     if (!SireumApplicationComponent.logging) {
       return
     }
-    processInit match {
-      case Some((_, logFile)) =>
-        if (content.isEmpty) return
-        val maxSize = org.sireum.server.Server.maxLogLineSize.toInt
-        if (logFile.size > org.sireum.server.Server.maxLogFileSize) logFile.writeOver("")
-        logFile.writeAppend(s"${org.sireum.server.Server.Ext.timeStamp(isRequest)}${if (!full && content.length > maxSize) content.substring(0, maxSize) else content}${org.sireum.Os.lineSep}")
-      case _ =>
+    if (content.isEmpty) return
+    var log = clientLog
+    if (log == null) clientLogLock.synchronized {
+      if (clientLog == null && clientLogPath != null)
+        clientLog = new ClientLog(clientLogPath, org.sireum.server.Server.maxLogFileSize.toLong)
+      log = clientLog
+    }
+    if (log == null) return
+    val maxSize = org.sireum.server.Server.maxLogLineSize.toInt
+    val truncated = !full && content.length > maxSize
+    log.log(if (isRequest) ClientLog.Kind.Request else ClientLog.Kind.Response,
+      if (truncated) content.substring(0, maxSize) else content, truncated)
+  }
+
+  // Only decodes the logged responses (recording decode times in Metrics); processing them would apply stale
+  // results to the open editors and the Problems list. Returns the number of decoded responses and the elapsed nanos.
+  def replayLog(path: org.sireum.Os.Path): (Int, Long) = {
+    val start = System.nanoTime
+    var n = 0
+    for (e <- ClientLog.entries(java.nio.file.Paths.get(path.string.value))
+         if e.kind == ClientLog.Kind.Response && !e.truncated) {
+      if (decodeFrame(e.content).responseOpt.nonEmpty) n += 1
     }
+    (n, System.nanoTime - start)
   }
 
-  def init(p: Project): Unit = editorMap.synchronized {
+  def init(p: Project): Unit = this.synchronized {
     if (processInit.isEmpty) {
       statusBarWidget.reset()
       var serverArgs = Vector[String]("server", "--message", "json")
@@ -343,9 +512,14 @@ object SireumClient {
         case _ => return
       }
       val logFile = sireumHome / ".client.log"
-      logFile.removeAll()
+      clientLogLock.synchronized {
+        if (clientLog != null) clientLog.close()
+        clientLog = null
+        clientLogPath = java.nio.file.Paths.get(logFile.string.value)
+      }
       val command = SireumApplicationComponent.getCommand(sireumHome, serverArgs)
       queue.clear()
+      serverStartTime = System.currentTimeMillis
       val phPort = SireumApplicationComponent.getSireumProcess(sireumHome, command)
       if (phPort._1 == null) {
         Util.notify(new Notification(
@@ -359,15 +533,21 @@ object SireumClient {
       writeLog(isRequest = false, s"Client v${PluginManager.getPlugin(PluginId.getId("org.sireum.intellij")).getVersion}: Started Sireum server ...")
       writeLog(isRequest = false, command.mkString(" ").replace(sireumHome.string.value, if (org.sireum.Os.isWin) "%SIREUM_HOME%" else "$SIREUM_HOME"))
       if (processInit.isEmpty) return
-
-      def memory: String =
-        if (usedMemory > 1024 * 1024 * 1024) f"${usedMemory.toLong / 1024d / 1024d / 1024d}%.2f GB"
-        else f"${usedMemory.toLong / 1024d / 1024d}%.2f MB"
-
-      def statusText(status: String): String =
-        s"$status${if (usedMemory =!= 0) s" ($memory)" else ""}<br>[click to shutdown or<br>clear caches]"
+      writeLog(isRequest = false, s"Server ready in ${System.currentTimeMillis - serverStartTime} ms")
+      queue.add(Vector((false, org.sireum.server.protocol.JSON.fromRequest(org.sireum.server.protocol.Slang.Check.Script(
+        isBackground = true,
+        logikaEnabled = Util.isLogikaSupportedPlatform,
+        id = warmupRequestId,
+        rootDirOpt = org.sireum.None(),
+        uriOpt = org.sireum.None(),
+        content = warmupContent,
+        line = 0,
+        rewriteKindOpt = org.sireum.None(),
+        returnAST = false
+      ), true).value)))
 
       shutdown = false
+      statusBarWidget.statusTooltip = statusText(statusIdle)
       val id = statusBarWidget.ID()
       for (frame <- WindowManager.getInstance.getAllProjectFrames) {
         val statusBar = frame.getStatusBar
@@ -376,63 +556,88 @@ object SireumClient {
         }
         statusBar.updateWidget(id)
       }
+    }
+  }
 
-      def updateWidget(): Unit = {
-        val id = statusBarWidget.ID()
-        for (frame <- WindowManager.getInstance.getAllProjectFrames) {
-          frame.getStatusBar.updateWidget(id)
-        }
+  def statusText(status: String): String = {
+    val memory =
+      if (usedMemory > 1024 * 1024 * 1024) f"${usedMemory.toLong / 1024d / 1024d / 1024d}%.2f GB"
+      else f"${usedMemory.toLong / 1024d / 1024d}%.2f MB"
+    s"$status${if (usedMemory =!= 0) s" ($memory)" else ""}<br>[click to shutdown or<br>clear caches]"
+  }
+
+  def updateWidgets(): Unit = {
+    val id = statusBarWidget.ID()
+    for (frame <- WindowManager.getInstance.getAllProjectFrames) {
+      frame.getStatusBar.updateWidget(id)
+    }
+  }
+
+  def updateActivity(): Unit = {
+    if (animator == null && !shutdown && (editorMap.nonEmpty || pendingRequests.nonEmpty)) {
+      animator = singleExecutor.scheduleAtFixedRate({ () => animate() }: Runnable, 0, animationFrameInMs, TimeUnit.MILLISECONDS)
+    }
+  }
+
+  private def animate(): Unit = {
+    if (!shutdown && (editorMap.nonEmpty || pendingRequests.nonEmpty)) {
+      statusBarWidget.frame = (statusBarWidget.frame + 1) % icons.length
+      statusBarWidget.statusTooltip = statusText(if (editorMap.nonEmpty) statusWorking else statusWaiting)
+      updateWidgets()
+    } else {
+      if (animator != null) {
+        animator.cancel(false)
+        animator = null
+      }
+      val f = statusBarWidget.frame
+      statusBarWidget.frame = defaultFrame
+      statusBarWidget.statusTooltip = statusText(statusIdle)
+      if (f != defaultFrame) updateWidgets()
+      if (!shutdown && System.currentTimeMillis - lastStatusUpdate > statusUpdateInMs) {
+        lastStatusUpdate = System.currentTimeMillis
+        queue.add(statusRequest)
       }
+    }
+  }
 
-      val t = new Thread {
-        override def run(): Unit = {
-          var idle = false
-          while (!shutdown) {
-            if (editorMap.nonEmpty || request.nonEmpty) {
-              idle = false
-              statusBarWidget.frame = (statusBarWidget.frame + 1) % icons.length
-              statusBarWidget.statusTooltip = statusText(if (editorMap.nonEmpty) statusWorking else statusWaiting)
-              updateWidget()
-            } else {
-              if (!idle) {
-                idle = true
-                val f = statusBarWidget.frame
-                statusBarWidget.frame = defaultFrame
-                statusBarWidget.statusTooltip = statusText(statusIdle)
-                if (f != defaultFrame) updateWidget()
-              }
-              if (System.currentTimeMillis - lastStatusUpdate > 60000) {
-                lastStatusUpdate = System.currentTimeMillis
-                queue.add(statusRequest)
-              }
-            }
-            this.synchronized {
-              request match {
-                case Some(r: Request) =>
-                  if (System.currentTimeMillis - r.time > SireumApplicationComponent.idle) {
-                    request = None
-                    editorMap.synchronized {
-                      editorMap(r.requestId) = (r.project, r.file, r.editor, r.input, r.isInterprocedural)
-                    }
-                    queue.add(for (m <- r.msgGen()) yield (true, m))
-                  }
-                case None =>
-              }
-              docChange match {
-                case Some((t, f)) =>
-                  if (System.currentTimeMillis - t > SireumApplicationComponent.idle) {
-                    docChange = None
-                    f()
-                  }
-                case _ =>
-              }
-            }
-            Thread.sleep(175)
-          }
-        }
+  def maxConcurrentRequests: Int =
+    Math.max(1, SireumApplicationComponent.maxCores / Math.max(1, SireumApplicationComponent.bgCores))
+
+  private def supersede(key: (Project, String)): Unit = {
+    val cancels = for ((rid, pe) <- editorMap.toVector if pe._1 == key._1 && pe._2.getCanonicalPath == key._2 &&
+      editorMap.remove(rid, pe)) yield {
+      regionScopes -= rid
+      Metrics.requestCancelled(rid)
+      (true, org.sireum.server.protocol.JSON.fromRequest(org.sireum.server.protocol.Cancel(rid), true).value)
+    }
+    if (cancels.nonEmpty) queue.add(cancels)
+    for (r <- pendingRequests.remove(key)) regionScopes -= r.requestId
+    for (timer <- requestTimers.remove(key)) timer.cancel(false)
+  }
+
+  private def sendRequest(key: (Project, String), requestId: org.sireum.ISZ[org.sireum.String]): Boolean = {
+    pendingRequests.get(key) match {
+      case Some(r) if r.requestId == requestId && editorMap.size < maxConcurrentRequests &&
+        pendingRequests.remove(key, r) =>
+        editorMap(r.requestId) = (r.project, r.file, r.editor, r.input, r.isInterprocedural)
+        queue.add(for (m <- r.msgGen()) yield (true, m))
+        // Consume the last edit so later requests without a new keystroke are not attributed to it
+        val lastEdit = r.editor.getUserData(lastEditKey)
+        r.editor.putUserData(lastEditKey, null)
+        Metrics.requestSent(r.requestId, lastEdit)
+        true
+      case _ => false
+    }
+  }
+
+  private def sendPendingRequests(): Unit = {
+    var sent = true
+    while (sent && editorMap.size < maxConcurrentRequests) {
+      val now = System.currentTimeMillis
+      sent = pendingRequests.iterator.filter(_._2.readyTime <= now).minByOption(_._2.readyTime) match {
+        case Some((key, r)) => sendRequest(key, r.requestId)
+        case _ => false
       }
-      t.setDaemon(true)
-      t.start()
     }
   }
 
@@ -440,45 +645,43 @@ object SireumClient {
 
   def addRequest(reqsF: org.sireum.ISZ[org.sireum.String] => Vector[org.sireum.server.protocol.Request],
                  project: Project, file: VirtualFile, editor: Editor, isBackground: Boolean, input: String,
-                 isInterprocedural: Boolean): Unit = {
+                 isInterprocedural: Boolean, regionOpt: Option[(Int, Int)] = None): Unit = {
     if (Util.getPath(file).isEmpty) {
       return
     }
-    Util.async { () =>
+    val key = (project, file.getCanonicalPath)
+    val priority = if (isBackground) Lanes.Priority.Background else Lanes.Priority.Foreground
+    runLater(0) { () => supersede(key) }
+    Util.async(Lanes.Lane.Server, priority, key) { () =>
       init(project)
-      val (t, requestId) = {
+      Util.async(Lanes.Lane.Request, priority, key) { () =>
         val t = System.currentTimeMillis
-        val id = org.sireum.ISZ(org.sireum.String(t.toString))
-        (t, id)
-      }
-
-      editorMap.synchronized {
-        val cancels = for (rid <- editorMap.keys.toVector) yield {
-          editorMap -= rid
-          (true, org.sireum.server.protocol.JSON.fromRequest(org.sireum.server.protocol.Cancel(rid), true).value)
-        }
-        if (cancels.nonEmpty) queue.add(cancels)
-      }
+        val requestId = org.sireum.ISZ(org.sireum.String(t.toString), org.sireum.String(requestSeq.incrementAndGet().toString))
 
-      def f(): Vector[String] = for (req <- reqsF(requestId)) yield org.sireum.server.protocol.JSON.fromRequest(req, true).value
+        def f(): Vector[String] = for (req <- reqsF(requestId)) yield org.sireum.server.protocol.JSON.fromRequest(req, true).value
 
-      if (isBackground) {
-        this.synchronized {
-          request = Some(Request(t, requestId, project, file, editor, input, f, isInterprocedural))
-        }
-      } else {
-        editorMap.synchronized {
-          this.synchronized {
-            request match {
-              case Some(r: Request) =>
-                editorMap -= r.requestId
-              case _ =>
+        runLater(0) { () =>
+          supersede(key)
+          for ((beginLine, endLine) <- regionOpt) {
+            regionScopes(requestId) = RegionScope(beginLine, endLine, scala.collection.mutable.HashSet())
+          }
+          if (isBackground) {
+            val delay = editor.getUserData(lastEditKey) match {
+              case null => SireumApplicationComponent.idle.toLong
+              case lastEdit => Math.max(0L, SireumApplicationComponent.idle - (t - lastEdit))
             }
-            request = None
+            pendingRequests(key) = Request(t, requestId, project, file, editor, input, f, isInterprocedural, t + delay)
+            requestTimers(key) = singleExecutor.schedule({ () =>
+              requestTimers.remove(key)
+              sendRequest(key, requestId)
+            }: Runnable, delay, TimeUnit.MILLISECONDS)
+          } else {
+            editorMap(requestId) = (project, file, editor, input, isInterprocedural)
+            queue.add(for (m <- f()) yield (true, m))
+            Metrics.requestSent(requestId, null)
           }
-          editorMap(requestId) = (project, file, editor, input, isInterprocedural)
+          updateActivity()
         }
-        queue.add(for (m <- f()) yield (true, m))
       }
     }
   }
@@ -538,7 +741,7 @@ object SireumClient {
 
   def analyze(isSlang: Boolean, project: Project, file: VirtualFile, editor: Editor, line: Int,
               isBackground: Boolean, isInterprocedural: Boolean,
-              typeCheckOnly: Boolean = false): Unit = {
+              typeCheckOnly: Boolean = false, regionOpt: Option[(Int, Int)] = None): Unit = {
     if (editor.isDisposed || !isEnabled(editor)) return
     val input = editor.getDocument.getText
     var ofiles = SireumClient.getModifiedFiles(isSlang, project, file)
@@ -560,8 +763,7 @@ object SireumClient {
           var vfiles = org.sireum.ISZ[org.sireum.String]()
           try {
             if (!typeCheckOnly) {
-              val content = editor.getDocument.getText
-              files = files + p.string ~> content
+              files = files + p.string ~> input
               if (Util.isLogikaSupportedPlatform) {
                 vfiles = vfiles :+ p.string
               }
@@ -598,10 +800,9 @@ object SireumClient {
           var vfiles = org.sireum.ISZ[org.sireum.String]()
           try {
             if (!typeCheckOnly) {
-              val content = editor.getDocument.getText
-              val (hasSireum, compactFirstLine, _) = org.sireum.lang.parser.SlangParser.detectSlang(org.sireum.Some(p.toUri), content)
+              val (hasSireum, compactFirstLine) = detectSlang(p, editor.getDocument)
               if (hasSireum) {
-                files = files + p.string ~> content
+                files = files + p.string ~> input
                 if (Util.isLogikaSupportedPlatform && (compactFirstLine.contains("#Logika") || isInterprocedural)) {
                   vfiles = vfiles :+ p.string
                 }
@@ -627,7 +828,13 @@ object SireumClient {
       )
     }
 
-    addRequest(f, project, file, editor, isBackground, input, isInterprocedural)
+    val isScriptCheck = isSlang && (Util.getPath(file) match {
+      case Some(p) => !(org.sireum.Os.path(project.getBasePath) / "bin" / "project.cmd").exists ||
+        p.ext.value == "sc" || p.ext.value == "cmd" || p.ext.value == "logika"
+      case _ => false
+    })
+    addRequest(f, project, file, editor, isBackground, input, isInterprocedural,
+      if (isScriptCheck && isBackground && !typeCheckOnly) regionOpt else None)
   }
 
   def getBackground(project: Project, editor: Editor, file: VirtualFile): org.sireum.logika.Config.BackgroundMode.Type = {
@@ -636,6 +843,10 @@ object SireumClient {
       return org.sireum.logika.Config.BackgroundMode.Disabled
     }
     val path = pOpt.get
+    val header = SlangFileIndex.header(project, path, editor.getDocument)
+    if (path.ext.value != "sysml" && !header.isSireum && !header.isLogika) {
+      return org.sireum.logika.Config.BackgroundMode.Disabled
+    }
     if (path.ext.value == "sysml") {
       val defaultConfig = getLogikaConfig(project, isBackground = false, isScript = false,
         isInterprocedural = false)
@@ -650,7 +861,8 @@ object SireumClient {
     }
   }
 
-  def analyzeOpt(project: Project, file: VirtualFile, editor: Editor, line: Int, isBackground: Boolean): Unit = {
+  def analyzeOpt(project: Project, file: VirtualFile, editor: Editor, line: Int, isBackground: Boolean,
+                 regionOpt: Option[(Int, Int)] = None): Unit = {
     val pOpt = Util.getPath(file)
     if (pOpt.isEmpty) {
       return
@@ -659,15 +871,21 @@ object SireumClient {
       enableEditor(project, file, editor)
       analyze(isSlang = false, project, file, editor, line, isBackground = isBackground, isInterprocedural = false)
     } else {
-      val (isSireum, isLogika) = Util.isSireumOrLogikaFile(pOpt.get)(org.sireum.String(editor.getDocument.getText))
-      if (isLogika || isSireum) {
+      val header = SlangFileIndex.header(project, pOpt.get, editor.getDocument)
+      if (header.isLogika || header.isSireum) {
         enableEditor(project, file, editor)
         if (isBackground)
-          analyze(isSlang = true, project, file, editor, line, isBackground = isBackground, isInterprocedural = false)
+          analyze(isSlang = true, project, file, editor, line, isBackground = isBackground, isInterprocedural = false,
+            regionOpt = regionOpt)
       }
     }
   }
 
+  def detectSlang(path: org.sireum.Os.Path, document: com.intellij.openapi.editor.Document): (Boolean, String) = {
+    val header = SlangFileIndex.documentHeader(path.string.value, document)
+    return (header.isSireum, header.compactFirstLine)
+  }
+
   def getModifiedFiles(isSlang: Boolean, project: Project, file: VirtualFile): org.sireum.HashSMap[org.sireum.String, org.sireum.String] = {
     var r = org.sireum.HashSMap.empty[org.sireum.String, org.sireum.String]
     val pOpt = Util.getPath(file)
@@ -680,9 +898,8 @@ object SireumClient {
           val path = pathOpt.get
           val e = fileEditor.getEditor
           if (isSlang && path.ext.value == "scala") {
-            val content = e.getDocument.getText
-            if (org.sireum.lang.parser.SlangParser.detectSlang(org.sireum.Some(path.toUri), content)._1) {
-              r = r + path.string ~> content
+            if (detectSlang(path, e.getDocument)._1) {
+              r = r + path.string ~> e.getDocument.getText
             }
           } else if (!isSlang && path.ext.value == "sysml") {
             val content = e.getDocument.getText
@@ -717,19 +934,140 @@ object SireumClient {
     }
     editor.getDocument.addDocumentListener(new DocumentListener {
       override def documentChanged(event: DocumentEvent): Unit = {
-        docChange = Some((System.currentTimeMillis, () => {
-          if (!project.isDisposed && !editor.isDisposed &&
-            getBackground(project, editor, file) == org.sireum.logika.Config.BackgroundMode.Type) {
-            analyzeOpt(project, file, editor, getCurrentLine(editor), isBackground = true)
+        val document = event.getDocument
+        val beginLine = document.getLineNumber(event.getOffset) + 1
+        val endLine = document.getLineNumber(event.getOffset + event.getNewLength) + 1
+        val linesShifted = countNewLines(event.getOldFragment) != countNewLines(event.getNewFragment)
+        editor.putUserData(dirtyRegionKey, editor.getUserData(dirtyRegionKey) match {
+          case null => DirtyRegion(beginLine, endLine, linesShifted)
+          case dr => DirtyRegion(Math.min(dr.beginLine, beginLine), Math.max(dr.endLine, endLine),
+            dr.linesShifted || linesShifted)
+        })
+        editor.putUserData(lastEditKey, System.currentTimeMillis)
+        val pending = editor.getUserData(docChangeKey)
+        if (pending != null) pending.cancel(false)
+        // only the timer lives on the scheduler; config mining and request building run on the Request lane
+        editor.putUserData(docChangeKey, singleExecutor.schedule({ () =>
+          editor.putUserData(docChangeKey, null)
+          val dirtyRegion = editor.getUserData(dirtyRegionKey)
+          editor.putUserData(dirtyRegionKey, null)
+          Util.async(Lanes.Lane.Request, Lanes.Priority.Background) { () =>
+            // None when disabled; otherwise the focus line and the region to re-check (None for the whole file)
+            val checkOpt = ReadAction.compute[Option[(Int, Option[(Int, Int)])], RuntimeException] { () =>
+              if (project.isDisposed || editor.isDisposed ||
+                getBackground(project, editor, file) != org.sireum.logika.Config.BackgroundMode.Type) None
+              else regionOf(editor, dirtyRegion) match {
+                case regionOpt@Some(_) => Some((dirtyRegion.beginLine, regionOpt))
+                case _ => Some((getCurrentLine(editor), None))
+              }
+            }
+            for ((line, regionOpt) <- checkOpt) {
+              analyzeOpt(project, file, editor, line, isBackground = true, regionOpt = regionOpt)
+            }
           }
-        }))
+        }: Runnable, SireumApplicationComponent.idle, TimeUnit.MILLISECONDS))
       }
 
       override def beforeDocumentChange(event: DocumentEvent): Unit = {}
     })
   }
 
-  def editorClosed(project: Project): Unit = {
+  private def countNewLines(cs: CharSequence): Int = {
+    var r = 0
+    for (i <- 0 until cs.length if cs.charAt(i) == '\n') r += 1
+    r
+  }
+
+  private val defHeaderRegex = """^\s*(@\w+\s+)*((private|override|final)\s+)*def\s""".r
+
+  private val annotationLineRegex = """^\s*@\w+(\(.*\))?\s*$""".r
+
+  private def lineText(document: com.intellij.openapi.editor.Document, line: Int): CharSequence =
+    document.getImmutableCharSequence.subSequence(document.getLineStartOffset(line - 1), document.getLineEndOffset(line - 1))
+
+  private def indentation(text: CharSequence): Int = {
+    var i = 0
+    while (i < text.length && Character.isWhitespace(text.charAt(i))) i += 1
+    if (i == text.length) -1 else i
+  }
+
+  // A non-blank line starting at column 0 that is not a def header, closing brace, annotation, or comment
+  private def isTopLevelStatement(text: CharSequence): Boolean = text.length > 0 && {
+    val c = text.charAt(0)
+    !Character.isWhitespace(c) && c != '}' && c != '@' && c != '/' && c != '*' &&
+      defHeaderRegex.findPrefixOf(text).isEmpty
+  }
+
+  // The lines of the def whose header is at defLine: its annotations on preceding lines, and everything up to
+  // (and including a closing brace at) the first later line that is not indented deeper than the header
+  private def defRange(document: com.intellij.openapi.editor.Document, defLine: Int): (Int, Int) = {
+    var begin = defLine
+    while (begin > 1 && annotationLineRegex.findPrefixOf(lineText(document, begin - 1)).nonEmpty) begin -= 1
+    val indent = indentation(lineText(document, defLine))
+    val max = document.getLineCount
+    var l = defLine + 1
+    while (l <= max) {
+      val text = lineText(document, l)
+      val i = indentation(text)
+      if (i >= 0 && i <= indent) return (begin, if (i == indent && text.charAt(i) == '}') l else l - 1)
+      l += 1
+    }
+    (begin, max)
+  }
+
+  // The innermost def whose range covers [beginLine, endLine]; None if the lines are not inside a def (or the
+  // guess is unreliable), in which case the whole file is re-checked
+  private def enclosingDef(document: com.intellij.openapi.editor.Document, beginLine: Int,
+                           endLine: Int): Option[(Int, Int)] = {
+    var l = Math.min(beginLine, document.getLineCount)
+    while (l >= 1) {
+      val text = lineText(document, l)
+      if (defHeaderRegex.findPrefixOf(text).nonEmpty) {
+        val (begin, end) = defRange(document, l)
+        if (begin <= beginLine && endLine <= end) return Some((begin, end))
+      } else if (l < beginLine && isTopLevelStatement(text)) return None
+      l -= 1
+    }
+    None
+  }
+
+  // The whole def enclosing the dirty lines, so that stale markings anywhere in it are cleared
+  def regionOf(editor: Editor, dirtyRegion: DirtyRegion): Option[(Int, Int)] = {
+    if (dirtyRegion == null || dirtyRegion.linesShifted || editor.getUserData(analysisDataKey) == null) return None
+    enclosingDef(editor.getDocument, dirtyRegion.beginLine, dirtyRegion.endLine)
+  }
+
+  def clearLine(file: VirtualFile, editor: Editor, line: Int): Unit = {
+    val (rhs, listModel, summoningListModelMap, hintListModelMap, _) = getAnalysisData(editor)
+    val mm = editor.getMarkupModel
+    dropGutters(editor, Some(line))
+    for (rh <- rhs.remove(line).getOrElse(Vector())) {
+      mm.removeHighlighter(rh)
+    }
+    summoningListModelMap.remove(line)
+    hintListModelMap.remove(line)
+    for (i <- listModel.size - 1 to 0 by -1) {
+      listModel.getElementAt(i) match {
+        case ri: ConsoleReportItem if ri.line == line => listModel.remove(i)
+        case _ =>
+      }
+    }
+    SireumClient.sireumToolWindowFactory(editor.getProject, forms => {
+      val problems = forms.problemList.getModel.asInstanceOf[DefaultListModel[SireumToolWindowFactory.Problem]]
+      for (i <- problems.size - 1 to 0 by -1) {
+        problems.getElementAt(i).value.message.posOpt match {
+          case org.sireum.Some(pos) if pos.beginLine.toInt == line && pos.uriOpt.nonEmpty &&
+            org.sireum.Os.Path.fromUri(pos.uriOpt.get).canon.value.value == file.getCanonicalPath => problems.remove(i)
+          case _ =>
+        }
+      }
+    })
+  }
+
+  def editorClosed(project: Project, file: VirtualFile): Unit = {
+    analysisCache.evictPath(file.getCanonicalPath)
+    val spill = spillStores.remove(file.getCanonicalPath)
+    if (spill != null) spill.close()
     resetSireumView(project, None)
   }
 
@@ -744,6 +1082,7 @@ object SireumClient {
         statusBar.updateWidget(id)
       }
     }
+    paintStoredResults(project, file, editor)
     analyzeOpt(project, file, editor, 0, isBackground =
       getBackground(project, editor, file) != org.sireum.logika.Config.BackgroundMode.Disabled)
   }
@@ -855,7 +1194,7 @@ object SireumClient {
                                                     file: VirtualFile,
                                                     messageHeader: String,
                                                     offset: Int,
-                                                    val message: String,
+                                                    payload: SpillStore.Payload,
                                                     terminated: Boolean,
                                                     isError: Boolean) extends ReportItem {
     override def toString: String = messageHeader
@@ -867,7 +1206,7 @@ object SireumClient {
                                                          info: String,
                                                          offset: Int,
                                                          val ok: Boolean,
-                                                         val message: String) extends ReportItem {
+                                                         payload: SpillStore.Payload) extends ReportItem {
     override def toString: String = messageHeader
   }
 
@@ -898,25 +1237,17 @@ object SireumClient {
         val offset = r.pos.offset.toInt
         val header = r.info.value.lines().limit(2).map(line => line.replace(';', ' ').
           replace("Result:", "").replace("Result (Cached):", "").trim).toArray.mkString(": ")
-        val message = if (r.query.value.head != '@') s"${r.info}\n${r.query}" else {
-          val p = org.sireum.Os.path(r.query.value.substring(1))
-          val m = try s"${r.info}\n${p.read.value}" catch {
-            case _: Throwable => s"${r.info}\n${r.query}"
-          }
-          p.removeAll()
-          m
-        }
-        return Some((line, SummoningReportItem(iproject, file, header, r.info.value, offset,
+        val info = r.info.value
+        val message = if (r.query.value.head != '@') SpillStore.Inline(s"$info\n${r.query}")
+        else spillStore(file).spill(java.nio.file.Paths.get(r.query.value.substring(1)), query => s"$info\n$query")
+        return Some((line, SummoningReportItem(iproject, file, header, info, offset,
           if (r.isSat) true else r.kind == Smt2Query.Result.Kind.Unsat, message)))
       case r: Logika.Verify.State =>
         import org.sireum._
-        val text = normalizeChars(
-          if (r.claims.value.head == '@') {
-            val p = org.sireum.Os.path(r.claims.value.substring(1))
-            val t = p.read.value
-            p.removeAll()
-            t
-          } else r.claims.value)
+        val text =
+          if (r.claims.value.head == '@')
+            spillStore(file).spill(java.nio.file.Paths.get(r.claims.value.substring(1)), claims => normalizeChars(claims))
+          else SpillStore.Inline(normalizeChars(r.claims.value))
         val pos = r.posOpt.get
         val line = pos.beginLine.toInt
         val offset = pos.offset.toInt
@@ -931,15 +1262,13 @@ object SireumClient {
         val pos = r.pos
         val line = pos.beginLine.toInt
         val offset = pos.offset.toInt
-        val text = if (r.message.value.head == '@') {
-          val p = org.sireum.Os.path(r.message.value.substring(1))
-          val t = p.read.value
-          p.removeAll()
-          t
-        } else r.message.value
+        val text =
+          if (r.message.value.head == '@') spillStore(file).spill(java.nio.file.Paths.get(r.message.value.substring(1)))
+          else SpillStore.Inline(r.message.value)
         val header = {
-          val i = text.indexOf('\n')
-          var firstLine = if (i >= 0) text.substring(0, i) else text
+          val t = text.preview(101)
+          val i = t.indexOf('\n')
+          var firstLine = if (i >= 0) t.substring(0, i) else t
           if (firstLine.length >= 100) {
             firstLine = firstLine.substring(0, 100) + " ..."
           }
@@ -1063,61 +1392,59 @@ object SireumClient {
         list.setModel(new DefaultListModel[Object]())
 
         list.addListSelectionListener(_ => list.synchronized {
+          val generation = selectionGeneration.incrementAndGet()
           val i = list.getSelectedIndex
           if (0 <= i && i < list.getModel.getSize)
             list.getModel.getElementAt(i) match {
-              case sri: SummoningReportItem =>
-                val content: Predef.String = sri.message
-                ApplicationManager.getApplication.invokeLater { () =>
-                  f.logika.logikaToolSplitPane.setDividerLocation(dividerWeight)
-                  f.logika.logikaTextArea.setText(normalizeChars(content))
-                  f.logika.logikaTextArea.setCaretPosition(0)
-                  val attrs = font.getAttributes.asInstanceOf[java.util.Map[TextAttribute, Object]]
-                  attrs.put(TextAttribute.LIGATURES, Integer.valueOf(0))
-                  f.logika.logikaTextArea.setFont(font.deriveFont(attrs))
-                  f.logika.logikaToolTextField.getDocument.putProperty("Logika", f.logika.logikaTextArea.getText)
-                  f.logika.logikaToolTextField.setPlaceholder("Filter ...")
-                  f.logika.logikaToolTextField.setText("")
-                  for (editor <- editorOpt if !editor.isDisposed)
-                    TransactionGuard.submitTransaction(project, (() =>
-                      FileEditorManager.getInstance(project).openTextEditor(
-                        new OpenFileDescriptor(sri.project, sri.file, sri.offset), true)): Runnable)
-                }
+              case sri: SummoningReportItem => withPayload(sri.payload, generation)(normalizeChars) { content =>
+                f.logika.logikaToolSplitPane.setDividerLocation(dividerWeight)
+                f.logika.logikaTextArea.setText(content)
+                f.logika.logikaTextArea.setCaretPosition(0)
+                val attrs = font.getAttributes.asInstanceOf[java.util.Map[TextAttribute, Object]]
+                attrs.put(TextAttribute.LIGATURES, Integer.valueOf(0))
+                f.logika.logikaTextArea.setFont(font.deriveFont(attrs))
+                f.logika.logikaToolTextField.getDocument.putProperty("Logika", f.logika.logikaTextArea.getText)
+                f.logika.logikaToolTextField.setPlaceholder("Filter ...")
+                f.logika.logikaToolTextField.setText("")
+                for (editor <- editorOpt if !editor.isDisposed)
+                  TransactionGuard.submitTransaction(project, (() =>
+                    FileEditorManager.getInstance(project).openTextEditor(
+                      new OpenFileDescriptor(sri.project, sri.file, sri.offset), true)): Runnable)
+              }
               case cri: ConsoleReportItem =>
                 for (editor <- editorOpt if !editor.isDisposed)
                   TransactionGuard.submitTransaction(project, (() =>
                     FileEditorManager.getInstance(project).openTextEditor(
                       new OpenFileDescriptor(cri.project, cri.file, cri.offset), true)): Runnable)
-              case hri: HintReportItem =>
-                var content = hri.message
+              case hri: HintReportItem => withPayload(hri.payload, generation) { message =>
                 if (forms.LogikaFormEx.hintMaxColumn > 0) {
                   org.sireum.Scalafmt.format(
                     s"${org.sireum.Scalafmt.minimalConfig}\nmaxColumn = ${forms.LogikaFormEx.hintMaxColumn}", true,
-                    content
+                    message
                   ) match {
-                    case org.sireum.Some(r) => content = r.value
-                    case _ =>
+                    case org.sireum.Some(r) => r.value
+                    case _ => message
                   }
-                }
-                ApplicationManager.getApplication.invokeLater { () =>
-                  f.logika.logikaToolSplitPane.setDividerLocation(if (list.getModel.getSize <= 1) 0 else dividerWeight)
-                  f.logika.logikaTextArea.setText(content)
-                  val attrs = font.getAttributes.asInstanceOf[java.util.Map[TextAttribute, Object]]
-                  attrs.put(TextAttribute.LIGATURES, TextAttribute.LIGATURES_ON)
-                  f.logika.logikaTextArea.setFont(font.deriveFont(attrs))
-                  f.logika.logikaToolTextField.getDocument.putProperty("Logika", f.logika.logikaTextArea.getText)
-                  val desc = if (content.startsWith("{")) "claims "
-                  else if (content.lines.anyMatch(l => l.startsWith("Trace:"))) "trace "
-                  else ""
-                  f.logika.logikaToolTextField.getDocument.putProperty("Logika Kind", desc)
-                  f.logika.logikaToolTextField.setPlaceholder(s"Filter $desc...")
-                  f.logika.logikaToolTextField.setText("")
-                  f.logika.logikaTextArea.setCaretPosition(f.logika.logikaTextArea.getDocument.getLength)
-                  for (editor <- editorOpt if !editor.isDisposed)
-                    TransactionGuard.submitTransaction(project, (() =>
-                      FileEditorManager.getInstance(project).openTextEditor(
-                        new OpenFileDescriptor(hri.project, hri.file, hri.offset), true)): Runnable)
-                }
+                } else message
+              } { content =>
+                f.logika.logikaToolSplitPane.setDividerLocation(if (list.getModel.getSize <= 1) 0 else dividerWeight)
+                f.logika.logikaTextArea.setText(content)
+                val attrs = font.getAttributes.asInstanceOf[java.util.Map[TextAttribute, Object]]
+                attrs.put(TextAttribute.LIGATURES, TextAttribute.LIGATURES_ON)
+                f.logika.logikaTextArea.setFont(font.deriveFont(attrs))
+                f.logika.logikaToolTextField.getDocument.putProperty("Logika", f.logika.logikaTextArea.getText)
+                val desc = if (content.startsWith("{")) "claims "
+                else if (content.lines.anyMatch(l => l.startsWith("Trace:"))) "trace "
+                else ""
+                f.logika.logikaToolTextField.getDocument.putProperty("Logika Kind", desc)
+                f.logika.logikaToolTextField.setPlaceholder(s"Filter $desc...")
+                f.logika.logikaToolTextField.setText("")
+                f.logika.logikaTextArea.setCaretPosition(f.logika.logikaTextArea.getDocument.getLength)
+                for (editor <- editorOpt if !editor.isDisposed)
+                  TransactionGuard.submitTransaction(project, (() =>
+                    FileEditorManager.getInstance(project).openTextEditor(
+                      new OpenFileDescriptor(hri.project, hri.file, hri.offset), true)): Runnable)
+              }
             }
         })
       }
@@ -1139,77 +1466,56 @@ object SireumClient {
     mm.addLineHighlighter(l, layer, ta)
   }
 
-  def processResult(r: org.sireum.server.protocol.Response): Unit = {
-    def getProjectFileEditorInput(pe: (Project, VirtualFile, Editor, String, Boolean)): Option[(Project, VirtualFile, Editor, String)] = {
-      r.posOpt match {
-        case org.sireum.Some(pos) if pos.uriOpt.nonEmpty =>
-          val uri = pos.uriOpt.get
-          val p = org.sireum.Os.Path.fromUri(uri).canon
-          val project = pe._1
-          if (project.isDisposed) {
-            return None
-          }
-          val editor = pe._3
-          val file = pe._2
-          if (file.getCanonicalPath != p.value.value) {
-            for (te <- FileEditorManager.getInstance(project).getAllEditors) {
-              te match {
-                case te: TextEditor =>
-                  val e = te.getEditor
-                  Util.getPath(te.getFile) match {
-                    case Some(path) if p.value.value == path.value.value =>
-                      return Some((project, te.getFile, e, e.getDocument.getText))
-                    case _ =>
-                  }
-                case _ =>
+  private def consoleReportItems(listModel: DefaultListModel[Object],
+                                 rhs: scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]],
+                                 editor: Editor,
+                                 ci: ConsoleReportItem,
+                                 line: Int): Unit = {
+    val tooltipSep = "<hr>"
+    val cs = editor.getColorsScheme
+    var level = ci.level
+    val mm = editor.getMarkupModel
+    val project = editor.getProject
+    val gutters = lineGutters(editor)
+    val (merged, rhl): (Predef.String, Vector[RangeHighlighter]) = rhs.get(line) match {
+      case scala.Some(rhv) =>
+        var msg = ci.message
+        var newRhv = Vector[RangeHighlighter]()
+        for (rh <- rhv) {
+          rh.getUserData(reportItemKey) match {
+            case cri: ConsoleReportItem =>
+              mm.removeHighlighter(rh)
+              msg = cri.message + tooltipSep + ci.message
+              if (cri.level.ordinal < level.ordinal) {
+                level = cri.level
               }
-            }
+            case _ => newRhv = newRhv :+ rh
           }
-          return if (editor != null) Some((project, file, editor, editor.getDocument.getText)) else None
-        case _ =>
-      }
-      None
+        }
+        (msg, newRhv)
+      case _ => (ci.message, Vector())
     }
-
-    def consoleReportItems(listModel: DefaultListModel[Object],
-                           rhs: scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]],
-                           editor: Editor,
-                           ci: ConsoleReportItem,
-                           line: Int): Unit = {
-      val tooltipSep = "<hr>"
-      val cs = editor.getColorsScheme
-      var level = ci.level
-      val mm = editor.getMarkupModel
-      val project = editor.getProject
-      val (message, rhl): (Predef.String, Vector[RangeHighlighter]) = rhs.get(line) match {
-        case scala.Some(rhv) =>
-          var msg = ci.message
-          var newRhv = Vector[RangeHighlighter]()
-          for (rh <- rhv) {
-            rh.getUserData(reportItemKey) match {
-              case cri: ConsoleReportItem =>
-                mm.removeHighlighter(rh)
-                msg = cri.message + tooltipSep + ci.message
-                if (cri.level.ordinal < level.ordinal) {
-                  level = cri.level
-                }
-              case _ => newRhv = newRhv :+ rh
-            }
-          }
-          (msg, newRhv)
-        case _ => (ci.message, Vector())
-      }
-      val (icon, color) = level match {
-        case Level.InternalError =>
-          (gutterErrorIcon, cs.getAttributes(TextAttributesKey.find("ERRORS_ATTRIBUTES")).getErrorStripeColor)
-        case Level.Error => (gutterErrorIcon, cs.getAttributes(TextAttributesKey.find("ERRORS_ATTRIBUTES")).getErrorStripeColor)
-        case Level.Warning => (gutterWarningIcon, cs.getAttributes(TextAttributesKey.find("WARNING_ATTRIBUTES")).getErrorStripeColor)
-        case Level.Info => (gutterInfoIcon, cs.getAttributes(TextAttributesKey.find("TYPO")).getEffectColor)
-      }
-      val attr = new TextAttributes(null, null, color, EffectType.WAVE_UNDERSCORE, Font.PLAIN)
-      val end = scala.math.min(ci.offset + ci.length, editor.getDocument.getTextLength)
-      val rhLine = addLineHighlighter(mm, line - 1, layer)
-      rhLine.putUserData(reportItemKey, ci)
+    // An earlier item of this batch whose gutter has not been painted yet is merged the same way
+    val message = gutters.get(line, classOf[ConsoleReportItem]) match {
+      case scala.Some(gutter) =>
+        val pci = gutter.item.asInstanceOf[ConsoleReportItem]
+        if (pci.level.ordinal < level.ordinal) {
+          level = pci.level
+        }
+        pci.message + tooltipSep + ci.message
+      case _ => merged
+    }
+    val (icon, color) = level match {
+      case Level.InternalError =>
+        (gutterErrorIcon, cs.getAttributes(TextAttributesKey.find("ERRORS_ATTRIBUTES")).getErrorStripeColor)
+      case Level.Error => (gutterErrorIcon, cs.getAttributes(TextAttributesKey.find("ERRORS_ATTRIBUTES")).getErrorStripeColor)
+      case Level.Warning => (gutterWarningIcon, cs.getAttributes(TextAttributesKey.find("WARNING_ATTRIBUTES")).getErrorStripeColor)
+      case Level.Info => (gutterInfoIcon, cs.getAttributes(TextAttributesKey.find("TYPO")).getEffectColor)
+    }
+    val attr = new TextAttributes(null, null, color, EffectType.WAVE_UNDERSCORE, Font.PLAIN)
+    val end = scala.math.min(ci.offset + ci.length, editor.getDocument.getTextLength)
+    gutters.put(line, ci) { m =>
+      val rhLine = addLineHighlighter(m, line - 1, layer)
       rhLine.setThinErrorStripeMark(false)
       rhLine.setErrorStripeMarkColor(color)
       rhLine.setGutterIconRenderer(gutterIconRenderer(message,
@@ -1222,57 +1528,58 @@ object SireumClient {
             tw.getContentManager.setSelectedContent(tw.getContentManager.findContent("Output"))
           })
         })))
-      rhLine.putUserData(reportItemKey, ci)
-      if (ci.offset != -1) {
-        val rh = mm.addRangeHighlighter(ci.offset, end, layer, attr, HighlighterTargetArea.EXACT_RANGE)
-        rh.putUserData(reportItemKey, ci)
-        rh.setErrorStripeTooltip(ci.message)
-        rh.setThinErrorStripeMark(false)
-        rh.setErrorStripeMarkColor(color)
-        listModel.addElement(ci)
-        rhs.put(line, rhl :+ rhLine :+ rh)
-      } else {
-        rhs.put(line, rhl :+ rhLine)
-      }
+      rhLine
+    }
+    if (ci.offset != -1) {
+      val rh = mm.addRangeHighlighter(ci.offset, end, layer, attr, HighlighterTargetArea.EXACT_RANGE)
+      rh.putUserData(reportItemKey, ci)
+      rh.setErrorStripeTooltip(ci.message)
+      rh.setThinErrorStripeMark(false)
+      rh.setErrorStripeMarkColor(color)
+      listModel.addElement(ci)
+      rhs.put(line, rhl :+ rh)
+    } else {
+      rhs.put(line, rhl)
     }
+  }
 
-    def hintReportItem(listModelMap: scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]],
-                       rhs: scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]],
-                       editor: Editor,
-                       ri: HintReportItem,
-                       line: Int): Unit = {
-      val mm = editor.getMarkupModel
-      val project = editor.getProject
-      val rhl: Vector[RangeHighlighter] = rhs.get(line) match {
-        case scala.Some(rhv) =>
-          var newRhv = Vector[RangeHighlighter]()
-          for (rh <- rhv) {
-            rh.getUserData(reportItemKey) match {
-              case _: HintReportItem => mm.removeHighlighter(rh)
-              case _ => newRhv = newRhv :+ rh
-            }
+  private def hintReportItem(listModelMap: scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]],
+                             rhs: scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]],
+                             editor: Editor,
+                             ri: HintReportItem,
+                             line: Int): Unit = {
+    val mm = editor.getMarkupModel
+    val project = editor.getProject
+    val rhl: Vector[RangeHighlighter] = rhs.get(line) match {
+      case scala.Some(rhv) =>
+        var newRhv = Vector[RangeHighlighter]()
+        for (rh <- rhv) {
+          rh.getUserData(reportItemKey) match {
+            case _: HintReportItem => mm.removeHighlighter(rh)
+            case _ => newRhv = newRhv :+ rh
           }
-          newRhv
-        case _ => Vector()
-      }
-      val hintListModel = listModelMap.get(line) match {
-        case scala.Some(l) => l
-        case _ =>
-          val l = new DefaultListModel[HintReportItem]()
-          listModelMap.put(line, l)
-          l
-      }
-      hintListModel.addElement(ri)
-      val rhLine = addLineHighlighter(mm, line - 1, layer)
-      rhLine.putUserData(reportItemKey, ri)
+        }
+        newRhv
+      case _ => Vector()
+    }
+    val hintListModel = listModelMap.get(line) match {
+      case scala.Some(l) => l
+      case _ =>
+        val l = new DefaultListModel[HintReportItem]()
+        listModelMap.put(line, l)
+        l
+    }
+    hintListModel.addElement(ri)
+    val (title, icon) = ri.kindOpt match {
+      case scala.Some(org.sireum.server.protocol.Logika.Verify.Info.Kind.Verified) =>
+        ("Click to show verification report", gutterLogikaVerifiedIcon)
+      case scala.Some(org.sireum.server.protocol.Logika.Verify.Info.Kind.Error) =>
+        ("Click to show verification report", gutterLogikaErrorIcon)
+      case _ => ("Click to show some hints", gutterHintIcon)
+    }
+    lineGutters(editor).put(line, ri) { m =>
+      val rhLine = addLineHighlighter(m, line - 1, layer)
       rhLine.setThinErrorStripeMark(false)
-      val (title, icon) = ri.kindOpt match {
-        case scala.Some(org.sireum.server.protocol.Logika.Verify.Info.Kind.Verified) =>
-          ("Click to show verification report", gutterLogikaVerifiedIcon)
-        case scala.Some(org.sireum.server.protocol.Logika.Verify.Info.Kind.Error) =>
-          ("Click to show verification report", gutterLogikaErrorIcon)
-        case _ => ("Click to show some hints", gutterHintIcon)
-      }
       rhLine.setGutterIconRenderer(gutterIconRenderer(
         title, icon, _ => sireumToolWindowFactory(project, f => {
           val tw = f.toolWindow.asInstanceOf[ToolWindowImpl]
@@ -1286,38 +1593,40 @@ object SireumClient {
           })
         })
       ))
-      rhs.put(line, rhl :+ rhLine)
-    }
-
-    def summoningReportItem(listModelMap: scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]],
-                            rhs: scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]],
-                            editor: Editor,
-                            ri: SummoningReportItem,
-                            line: Int): Unit = {
-      val mm = editor.getMarkupModel
-      val project = editor.getProject
-      val rhl: Vector[RangeHighlighter] = rhs.get(line) match {
-        case scala.Some(rhv) =>
-          var newRhv = Vector[RangeHighlighter]()
-          for (rh <- rhv) {
-            rh.getUserData(reportItemKey) match {
-              case _: SummoningReportItem => mm.removeHighlighter(rh)
-              case _ => newRhv = newRhv :+ rh
-            }
+      rhLine
+    }
+    rhs.put(line, rhl)
+  }
+
+  private def summoningReportItem(listModelMap: scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]],
+                                  rhs: scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]],
+                                  editor: Editor,
+                                  ri: SummoningReportItem,
+                                  line: Int): Unit = {
+    val mm = editor.getMarkupModel
+    val project = editor.getProject
+    val rhl: Vector[RangeHighlighter] = rhs.get(line) match {
+      case scala.Some(rhv) =>
+        var newRhv = Vector[RangeHighlighter]()
+        for (rh <- rhv) {
+          rh.getUserData(reportItemKey) match {
+            case _: SummoningReportItem => mm.removeHighlighter(rh)
+            case _ => newRhv = newRhv :+ rh
           }
-          newRhv
-        case _ => Vector()
-      }
-      val summoningListModel = listModelMap.get(line) match {
-        case scala.Some(l) => l
-        case _ =>
-          val l = new DefaultListModel[SummoningReportItem]()
-          listModelMap.put(line, l)
-          l
-      }
-      summoningListModel.addElement(ri)
-      val rhLine = addLineHighlighter(mm, line - 1, layer)
-      rhLine.putUserData(reportItemKey, ri)
+        }
+        newRhv
+      case _ => Vector()
+    }
+    val summoningListModel = listModelMap.get(line) match {
+      case scala.Some(l) => l
+      case _ =>
+        val l = new DefaultListModel[SummoningReportItem]()
+        listModelMap.put(line, l)
+        l
+    }
+    summoningListModel.addElement(ri)
+    lineGutters(editor).put(line, ri) { m =>
+      val rhLine = addLineHighlighter(m, line - 1, layer)
       rhLine.setThinErrorStripeMark(false)
       rhLine.setGutterIconRenderer(gutterIconRenderer("Click to show scribed incantations",
         gutterSummoningIcon, _ => sireumToolWindowFactory(project, f => {
@@ -1360,48 +1669,259 @@ object SireumClient {
             tw.getContentManager.setSelectedContent(tw.getContentManager.findContent("Output"))
           })
         })))
-      rhs.put(line, rhl :+ rhLine)
+      rhLine
     }
+    rhs.put(line, rhl)
+  }
 
-    def readLine(r: Reader): String = {
-      val buffer = new StringBuilder
-      try {
-        while (true) {
-          while (isSocketAlive && !r.ready) {
-            Thread.sleep(250)
+  def getAnalysisData(editor: Editor): (scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]], DefaultListModel[Object], scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]], scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]], CoverageRegions) = {
+    var q = editor.getUserData(analysisDataKey)
+    if (q == null) {
+      q = (
+        scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]](),
+        new DefaultListModel[Object](),
+        scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]](),
+        scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]](),
+        new CoverageRegions
+      )
+      editor.putUserData(analysisDataKey, q)
+    }
+    q
+  }
+
+  private def lineSnapshot(editor: Editor, line: Int): Option[AnalysisCache.LineSnapshot] = {
+    import org.sireum.message.Level
+    paintGutters(editor)
+    val (rhs, _, summoningListModelMap, hintListModelMap, _) = getAnalysisData(editor)
+    val consoles = rhs.getOrElse(line, Vector()).flatMap(rh => rh.getUserData(reportItemKey) match {
+      case ri: ConsoleReportItem if ri.level == Level.Info || ri.level == Level.Warning =>
+        Some(AnalysisCache.ConsoleSnapshot(ri.level, ri.column, ri.message))
+      case _ => None
+    })
+    val summonings = summoningListModelMap.get(line) match {
+      case Some(value) =>
+        for (j <- (0 until value.size).toVector if value.getElementAt(j).ok) yield {
+          val ri = value.getElementAt(j)
+          val message = ri.payload match {
+            case SpillStore.Inline(text) => text
+            case p => s"${ri.info}\n; (${p.length} bytes of spilled query text are not cached)"
+          }
+          AnalysisCache.SummoningSnapshot(ri.messageHeader, ri.info, ri.offset, ri.ok,
+            message.replace("Result:", "Result (Cached):"))
+        }
+      case _ => Vector()
+    }
+    val hints = hintListModelMap.get(line) match {
+      case Some(value) =>
+        for (j <- (0 until value.size).toVector) yield {
+          val ri = value.getElementAt(j)
+          val message = ri.payload match {
+            case SpillStore.Inline(text) => text
+            case p => s"// (${p.length} bytes of spilled text are not cached)"
           }
-          if (r.ready) {
-            val c = r.read.asInstanceOf[Char]
-            c match {
-              case '\n' => return buffer.toString
-              case -1 => return null
-              case _ => buffer.append(c)
+          AnalysisCache.HintSnapshot(ri.kindOpt, ri.messageHeader, ri.offset, message + "\n\n// Cached",
+            ri.terminated, ri.isError)
+        }
+      case _ => Vector()
+    }
+    if (consoles.nonEmpty || summonings.nonEmpty || hints.nonEmpty)
+      Some(AnalysisCache.LineSnapshot(consoles, summonings, hints))
+    else None
+  }
+
+  private def replayLineSnapshot(project: Project, file: VirtualFile, editor: Editor, line: Int,
+                                 ls: AnalysisCache.LineSnapshot): Unit = {
+    val (rhs, listModel, summoningListModelMap, hintListModelMap, _) = getAnalysisData(editor)
+    for (cs <- ls.consoles) {
+      consoleReportItems(listModel, rhs, editor,
+        ConsoleReportItem(project, file, cs.level, line, cs.column, -1, 0, cs.message), line)
+    }
+    for (ss <- ls.summonings) {
+      summoningReportItem(summoningListModelMap, rhs, editor,
+        SummoningReportItem(project, file, ss.messageHeader, ss.info, ss.offset, ss.ok,
+          SpillStore.Inline(ss.message)), line)
+    }
+    for (hs <- ls.hints if !hs.terminated) {
+      hintReportItem(hintListModelMap, rhs, editor,
+        HintReportItem(hs.kindOpt, project, file, hs.messageHeader, hs.offset, SpillStore.Inline(hs.message), hs.terminated,
+          hs.isError), line)
+    }
+  }
+
+  private val spillStores = new java.util.concurrent.ConcurrentHashMap[String, SpillStore]
+
+  def spillStore(file: VirtualFile): SpillStore =
+    spillStores.computeIfAbsent(file.getCanonicalPath, _ => new SpillStore)
+
+  private val selectionGeneration = new java.util.concurrent.atomic.AtomicLong
+
+  // Loads (off the EDT when spilled) and prepares the payload, then shows it unless the selection has moved on
+  private def withPayload(payload: SpillStore.Payload, generation: Long)(prepare: String => String)
+                         (show: String => Unit): Unit = {
+    def run(): Unit = {
+      val text = prepare(payload.load())
+      ApplicationManager.getApplication.invokeLater { () =>
+        if (selectionGeneration.get == generation) show(text)
+      }
+    }
+
+    if (payload.isSpilled) ApplicationManager.getApplication.executeOnPooledThread({ () => run() }: Runnable)
+    else run()
+  }
+
+  private val resultStores = new java.util.concurrent.ConcurrentHashMap[String, ResultStore]
+
+  def resultStore(project: Project): ResultStore =
+    resultStores.computeIfAbsent(project.getBasePath, base =>
+      new ResultStore(java.nio.file.Paths.get(base, ".idea", "sireum", "logika-results.bin"),
+        SireumApplicationComponent.analysisResultsMegabytes * 1024L * 1024L))
+
+  private val closingResultStores = java.util.concurrent.ConcurrentHashMap.newKeySet[String]
+
+  // Queued behind any pending persists for the project, so they land before the store is dropped; persists
+  // requested after this point are not submitted
+  def closeResultStore(project: Project): Unit = {
+    val base = project.getBasePath
+    closingResultStores.add(base)
+    Util.async(Lanes.Lane.IO, Lanes.Priority.Background) { () =>
+      val store = resultStores.remove(base)
+      if (store != null) store.close()
+      closingResultStores.remove(base)
+    }
+  }
+
+  // Only intraprocedural results are stored (one record per path), since that is what is repainted on open
+  def resultConfigHash(project: Project, file: VirtualFile): Long =
+    ResultStore.configHash(getLogikaConfig(project, isBackground = true, isScript = file.getExtension == "sc",
+      isInterprocedural = false))
+
+  def persistResults(project: Project, file: VirtualFile, editor: Editor, input: String): Unit = {
+    if (closingResultStores.contains(project.getBasePath)) return
+    val (rhs, _, summoningListModelMap, hintListModelMap, _) = getAnalysisData(editor)
+    var lines = Map[Int, AnalysisCache.LineSnapshot]()
+    for (line <- rhs.keySet ++ summoningListModelMap.keySet ++ hintListModelMap.keySet; ls <- lineSnapshot(editor, line)) {
+      lines = lines + (line -> ls)
+    }
+    val path = file.getCanonicalPath
+    Util.async(Lanes.Lane.IO, Lanes.Priority.Background, (project, path)) { () =>
+      if (!project.isDisposed)
+        resultStore(project).put(ResultStore.Record(path, ResultStore.contentHash(input),
+          resultConfigHash(project, file), lines))
+    }
+  }
+
+  def paintStoredResults(project: Project, file: VirtualFile, editor: Editor): Unit = {
+    val input = editor.getDocument.getText
+    val path = file.getCanonicalPath
+    Util.async(Lanes.Lane.IO, Lanes.Priority.Foreground) { () =>
+      for (lines <- resultStore(project).get(path, ResultStore.contentHash(input),
+        resultConfigHash(project, file)) if lines.nonEmpty) {
+        ApplicationManager.getApplication.invokeLater { () =>
+          if (!editor.isDisposed && editor.getUserData(analysisDataKey) == null &&
+            input == editor.getDocument.getText) {
+            for ((line, ls) <- lines) try {
+              replayLineSnapshot(project, file, editor, line, ls)
+            } catch {
+              case t: Throwable => logStackTrace(t)
             }
+            paintGutters(editor)
           }
         }
-        buffer.toString
-      } catch {
-        case _: IOException => null
       }
     }
+  }
+
+  def processResult(r: org.sireum.server.protocol.Response): Unit = {
+    if (r.id == warmupRequestId) {
+      r match {
+        case _: org.sireum.server.protocol.Analysis.End =>
+          writeLog(isRequest = false, s"Server warmed up in ${System.currentTimeMillis - serverStartTime} ms")
+        case _ =>
+      }
+      return
+    }
+    Metrics.responseReceived(r)
+    def getProjectFileEditorInput(pe: (Project, VirtualFile, Editor, String, Boolean)): Option[(Project, VirtualFile, Editor, String)] = {
+      r.posOpt match {
+        case org.sireum.Some(pos) if pos.uriOpt.nonEmpty =>
+          val uri = pos.uriOpt.get
+          val p = org.sireum.Os.Path.fromUri(uri).canon
+          val project = pe._1
+          if (project.isDisposed) {
+            return None
+          }
+          val editor = pe._3
+          val file = pe._2
+          if (file.getCanonicalPath != p.value.value) {
+            for (te <- FileEditorManager.getInstance(project).getAllEditors) {
+              te match {
+                case te: TextEditor =>
+                  val e = te.getEditor
+                  Util.getPath(te.getFile) match {
+                    case Some(path) if p.value.value == path.value.value =>
+                      return Some((project, te.getFile, e, e.getDocument.getText))
+                    case _ =>
+                  }
+                case _ =>
+              }
+            }
+          }
+          return if (editor != null) Some((project, file, editor, editor.getDocument.getText)) else None
+        case _ =>
+      }
+      None
+    }
 
     r match {
       case r: org.sireum.server.protocol.SocketPort =>
-        socket = new Socket(InetAddress.getLoopbackAddress, r.port.toInt)
-        ir = new InputStreamReader(socket.getInputStream, "UTF-8")
-        ow = new OutputStreamWriter(socket.getOutputStream, "UTF-8")
+        channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress, r.port.toInt))
+        socket = channel.socket
+        ow = new OutputStreamWriter(new FilterOutputStream(Channels.newOutputStream(channel)) {
+          override def write(b: Int): Unit = {
+            out.write(b)
+            bytesSent.incrementAndGet()
+          }
+
+          override def write(b: Array[Byte], off: Int, len: Int): Unit = {
+            out.write(b, off, len)
+            bytesSent.addAndGet(len)
+          }
+        }, "UTF-8")
+        if (dispatchThread == null) {
+          dispatchThread = new Thread {
+            override def run(): Unit = {
+              var terminated = false
+              while (!terminated) try {
+                frames.take() match {
+                  case Some(frame) => processFrame(frame.get)
+                  case _ => terminated = true
+                }
+              } catch {
+                case _: InterruptedException => terminated = true
+                case t: Throwable => logStackTrace(t)
+              }
+            }
+          }
+          dispatchThread.setDaemon(true)
+          dispatchThread.start()
+        }
         if (responseThread == null) {
+          val reader = new FrameReader(channel)
           responseThread = new Thread {
             override def run(): Unit = {
+              var lastBytesRead = 0L
               while (isSocketAlive) try {
-                if (ir != null) {
-                  val line = readLine(ir)
-                  if (line == null) {
-                    shutdownServer()
-                  }
-                  ApplicationManager.getApplication.invokeLater(() => processResponse(line))
+                val frame = reader.next()
+                val bytesRead = reader.bytesRead
+                Metrics.bytesReceived.addAndGet(bytesRead - lastBytesRead)
+                lastBytesRead = bytesRead
+                if (frame == null) {
+                  shutdownServer()
                 } else {
-                  Thread.sleep(1000)
+                  frames.put(Some(decodePool.submit(new Callable[Frame] {
+                    override def call(): Frame = decodeFrame(frame)
+                  })))
+                  Metrics.sampleQueueDepth()
                 }
               } catch {
                 case _: InterruptedException =>
@@ -1424,10 +1944,17 @@ object SireumClient {
                     Thread.sleep(1000)
                   }
                   if (isSocketAlive && ow != null) {
+                    val before = bytesSent.get
                     ow.write(m)
                     ow.write(lineSep)
                     ow.flush()
-                    if (shouldLog) SireumClient.writeLog(isRequest = true, m)
+                    requestsSent.incrementAndGet()
+                    if (Metrics.enabled) Metrics.messagesSent.increment()
+                    if (shouldLog) {
+                      SireumClient.writeLog(isRequest = true, m)
+                      SireumClient.writeLog(isRequest = true,
+                        s"// Sent ${bytesSent.get - before} bytes (total: ${bytesSent.get} bytes in ${requestsSent.get} requests)")
+                    }
                   } else {
                     shutdownServer()
                   }
@@ -1451,73 +1978,106 @@ object SireumClient {
         Util.notify(new Notification(groupId, sireumServerTitle,
           r.msg.value, NotificationType.INFORMATION), null, shouldExpire = true)
       case r: org.sireum.server.protocol.Analysis.ResolvedAst =>
-        if (r.path.value.isEmpty) {
+        def astError(project: Project): Unit =
           Util.notify(new Notification(groupId, "Slang AST Viewer",
-            s"Could not display Slang AST", NotificationType.ERROR), null, shouldExpire = true)
-        } else {
-          val path = org.sireum.Os.path(r.path)
-          val topUnit = org.sireum.lang.tipe.JSON.to_astTopUnit(path.read).left
+            s"Could not display Slang AST", NotificationType.ERROR), project, shouldExpire = true)
+        if (r.path.value.isEmpty) {
+          astError(null)
+        } else ApplicationManager.getApplication.invokeLater(() => {
           val project = Util.activeProject
-          if (project != null) {
-            sireumToolWindowFactory(project, forms => {
-              ApplicationManager.getApplication.invokeLater(() => {
-                forms.toolWindow.activate(() => {
-                  forms.astTree.setModel(new SireumToolWindowFactory.SlangAstTreeModel(project,
-                    new SireumToolWindowFactory.SlangAstTreeModel.Node("ROOT", false, topUnit)))
-                  forms.toolWindow.getContentManager.setSelectedContent(forms.toolWindow.getContentManager.findContent("Slang AST"))
+          if (project != null) ApplicationManager.getApplication.executeOnPooledThread({ () =>
+            try {
+              val path = org.sireum.Os.path(r.path)
+              val topUnitOpt = org.sireum.lang.tipe.JSON.to_astTopUnit(path.read)
+              if (topUnitOpt.isLeft) {
+                val model = new SireumToolWindowFactory.SlangAstTreeModel(project,
+                  new SireumToolWindowFactory.SlangAstTreeModel.Node("ROOT", false, topUnitOpt.left))
+                sireumToolWindowFactory(project, forms => {
+                  ApplicationManager.getApplication.invokeLater(() => {
+                    forms.toolWindow.activate(() => {
+                      forms.astTree.setModel(model)
+                      forms.toolWindow.getContentManager.setSelectedContent(forms.toolWindow.getContentManager.findContent("Slang AST"))
+                    })
+                  })
                 })
-              })
-            })
-          }
-        }
+              } else {
+                astError(project)
+              }
+            } catch {
+              case t: Throwable =>
+                logStackTrace(t)
+                astError(project)
+            }
+          }: Runnable)
+        })
       case _ =>
         def processResultH(): Unit = {
           def clearEditorH(editor: Editor): Unit = {
             if (!editor.isDisposed) {
               val mm = editor.getMarkupModel
-              analysisDataKey.synchronized {
-                val q = editor.getUserData(analysisDataKey)
-                if (q != null) {
-                  for (rh <- mm.getAllHighlighters if rh.getUserData(reportItemKey) != null) {
-                    mm.removeHighlighter(rh)
-                  }
-                  editor.putUserData(analysisDataKey, null)
+              val q = editor.getUserData(analysisDataKey)
+              dropGutters(editor, None)
+              if (q != null) {
+                for (rh <- mm.getAllHighlighters if rh.getUserData(reportItemKey) != null) {
+                  mm.removeHighlighter(rh)
                 }
+                editor.putUserData(analysisDataKey, null)
               }
             }
           }
 
-          def clearProblems(project: Project): Unit = {
+          def clearProblems(project: Project, isCleared: String => Boolean): Unit = {
             SireumClient.sireumToolWindowFactory(project, forms => {
-              forms.problemList.getModel.asInstanceOf[DefaultListModel[SireumToolWindowFactory.Problem]].clear()
+              val problems = forms.problemList.getModel.asInstanceOf[DefaultListModel[SireumToolWindowFactory.Problem]]
+              for (i <- problems.size - 1 to 0 by -1) {
+                val path = problems.getElementAt(i).value.message.posOpt match {
+                  case org.sireum.Some(pos) if pos.uriOpt.nonEmpty =>
+                    org.sireum.Os.Path.fromUri(pos.uriOpt.get).canon.value.value
+                  case _ => ""
+                }
+                if (isCleared(path)) problems.remove(i)
+              }
             })
           }
 
-          def clearProgramMarkings(): Unit = {
+          def clearProgramMarkings(project: Project): Unit = {
             r match {
               case _: org.sireum.server.protocol.Analysis.Start =>
-                for (project <- ProjectManager.getInstance.getOpenProjects) {
-                  clearProblems(project)
-                  for (fileEditor <- FileEditorManager.getInstance(project).getAllEditors) {
-                    fileEditor match {
-                      case fileEditor: TextEditor =>
-                        val path = fileEditor.getFile.getPath
-                        if (path.endsWith(".scala") || path.endsWith(".slang")) {
-                          clearEditorH(fileEditor.getEditor)
-                        }
-                      case _ =>
-                    }
+                val busy = (for ((rid, pe) <- editorMap.iterator if rid != r.id && pe._1 == project)
+                  yield pe._2.getCanonicalPath).toSet
+                clearProblems(project, path => !busy.contains(path))
+                for (fileEditor <- FileEditorManager.getInstance(project).getAllEditors) {
+                  fileEditor match {
+                    case fileEditor: TextEditor =>
+                      val path = fileEditor.getFile.getPath
+                      if ((path.endsWith(".scala") || path.endsWith(".slang")) &&
+                        !busy.contains(fileEditor.getFile.getCanonicalPath)) {
+                        clearEditorH(fileEditor.getEditor)
+                      }
+                    case _ =>
                   }
                 }
               case _ =>
             }
           }
 
-          def clearScriptMarkings(editor: Editor): Unit = {
+          def clearScriptMarkings(file: VirtualFile, editor: Editor, scopeOpt: Option[RegionScope]): Unit = {
             r match {
               case _: org.sireum.server.protocol.Analysis.Start =>
-                clearProblems(editor.getProject)
-                clearEditorH(editor)
+                scopeOpt match {
+                  case Some(scope) if !editor.isDisposed =>
+                    for (line <- scope.beginLine to scope.endLine if scope.touched.add(line)) {
+                      clearLine(file, editor, line)
+                    }
+                    val coverageRegions = getAnalysisData(editor)._5
+                    if (coverageRegions.remove(scope.beginLine, scope.endLine)) {
+                      coverageEditors.put(editor, coverageRegions)
+                    }
+                  case _ =>
+                    val path = file.getCanonicalPath
+                    clearProblems(editor.getProject, p => p.isEmpty || p == path)
+                    clearEditorH(editor)
+                }
               case _ =>
             }
           }
@@ -1532,163 +2092,103 @@ object SireumClient {
             case _ =>
           }
 
-          val (project, file, editor, input) = editorMap.synchronized {
-            editorMap.get(r.id) match {
-              case Some(pe) =>
-                val path = pe._2.getPath
-                if (path.endsWith(".scala") || path.endsWith(".slang")) {
-                  clearProgramMarkings()
-                } else {
-                  clearScriptMarkings(pe._3)
-                }
-                r match {
-                  case r: org.sireum.server.protocol.Analysis.End =>
-                    notifyHelper(Some(pe._1), Some(pe._3), r)
-                    editorMap -= r.id
-                  case r: org.sireum.server.protocol.Slang.Rewrite.Response => editorMap -= r.id
-                  case _: org.sireum.server.protocol.Analysis.Start =>
-                    if (!pe._1.isDisposed && !pe._3.isDisposed) {
-                      resetSireumView(pe._1, Some(pe._3))
-                      sireumToolWindowFactory(pe._1, f => {
-                        f.logika.logikaTextArea.setFont(
-                          pe._3.getColorsScheme.getFont(EditorFontType.PLAIN))
-                        f.logika.logikaTextArea.setText("")
-                      })
-                    }
-                  case r: org.sireum.server.protocol.Report if r.message.level == Level.InternalError || r.message.posOpt.isEmpty =>
-                    notifyHelper(Some(pe._1), if (pe._3.isDisposed) None else Some(pe._3), r)
-                  case _ =>
-                }
-                getProjectFileEditorInput(pe) match {
-                  case Some(v) if !pe._3.isDisposed => v
-                  case _ =>
-                    writeLog(isRequest = false, s"There is no opened editor for response: $r")
-                    return
-                }
-              case _ =>
-                clearProgramMarkings()
-                notifyHelper(None, None, r)
-                return
-            }
+          val (peOpt, scopeOpt) = r match {
+            case _: org.sireum.server.protocol.Analysis.End | _: org.sireum.server.protocol.Slang.Rewrite.Response =>
+              (editorMap.remove(r.id), regionScopes.remove(r.id))
+            case _ => (editorMap.get(r.id), regionScopes.get(r.id))
           }
-          val (rhs, listModel, summoningListModelMap, hintListModelMap, coverageLines) =
-            analysisDataKey.synchronized {
+          val (project, file, editor, input) = peOpt match {
+            case Some(pe) =>
+              val path = pe._2.getPath
+              if (path.endsWith(".scala") || path.endsWith(".slang")) {
+                clearProgramMarkings(pe._1)
+              } else {
+                clearScriptMarkings(pe._2, pe._3, scopeOpt)
+              }
               r match {
-                case r: org.sireum.server.protocol.Slang.Rewrite.Response =>
-                  SireumOnlyAction.processSlangRewriteResponse(r, project, editor)
-                  return
-                case _ =>
-                  var q = editor.getUserData(analysisDataKey)
-                  if (q == null) {
-                    q = (
-                      scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]](),
-                      new DefaultListModel[Object](),
-                      scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]](),
-                      scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]](),
-                      scala.collection.mutable.HashSet[Int]()
-                    )
-                    editor.putUserData(analysisDataKey, q)
+                case r: org.sireum.server.protocol.Analysis.End =>
+                  notifyHelper(Some(pe._1), Some(pe._3), r)
+                  runLater(0)(() => sendPendingRequests())
+                  for (t <- scala.util.Try(r.id(org.sireum.Z(0)).value.toLong)) {
+                    val scope = scopeOpt match {
+                      case Some(scope) => s"lines ${scope.beginLine}-${scope.endLine}"
+                      case _ => "full"
+                    }
+                    writeLog(isRequest = false,
+                      s"Analysis of ${pe._2.getCanonicalPath} ($scope) took ${System.currentTimeMillis - t} ms")
+                  }
+                  if (!r.wasCancelled && r.numOfErrors == 0 && r.numOfInternalErrors == 0 && !pe._5 &&
+                    !pe._1.isDisposed && !pe._3.isDisposed && pe._4 == pe._3.getDocument.getText) try {
+                    persistResults(pe._1, pe._2, pe._3, pe._4)
+                  } catch {
+                    case t: Throwable => logStackTrace(t)
+                  }
+                case _: org.sireum.server.protocol.Analysis.Start =>
+                  if (!pe._1.isDisposed && !pe._3.isDisposed) {
+                    resetSireumView(pe._1, Some(pe._3))
+                    sireumToolWindowFactory(pe._1, f => {
+                      f.logika.logikaTextArea.setFont(
+                        pe._3.getColorsScheme.getFont(EditorFontType.PLAIN))
+                      f.logika.logikaTextArea.setText("")
+                    })
                   }
-                  (q._1, q._2, q._3, q._4, q._5)
+                case r: org.sireum.server.protocol.Report if r.message.level == Level.InternalError || r.message.posOpt.isEmpty =>
+                  notifyHelper(Some(pe._1), if (pe._3.isDisposed) None else Some(pe._3), r)
+                case _ =>
               }
-            }
+              getProjectFileEditorInput(pe) match {
+                case Some(v) if !pe._3.isDisposed => v
+                case _ =>
+                  writeLog(isRequest = false, s"There is no opened editor for response: $r")
+                  return
+              }
+            case _ =>
+              notifyHelper(None, None, r)
+              return
+          }
+          r match {
+            case r: org.sireum.server.protocol.Slang.Rewrite.Response =>
+              SireumOnlyAction.processSlangRewriteResponse(r, project, editor)
+              return
+            case _ =>
+          }
+          val (rhs, listModel, summoningListModelMap, hintListModelMap, coverageRegions) = getAnalysisData(editor)
+          def touch(line: Int): Unit = for (scope <- scopeOpt if scope.touched.add(line)) {
+            clearLine(file, editor, line)
+          }
+
           if (input != editor.getDocument.getText) {
             writeLog(isRequest = false, s"Stale response: $r")
             return
           }
           r match {
             case r: org.sireum.server.protocol.Analysis.Coverage => try {
-              val mm = editor.getMarkupModel
+              val key = (editor.getVirtualFile.getCanonicalPath, r.cached.value)
+              val cachedOpt = if (r.setCache) None else analysisCache.get(key)
+              var snapshots = Map[Int, AnalysisCache.LineSnapshot]()
+              if (forms.LogikaFormEx.coverage && coverageRegions.add(r.pos.beginLine.toInt, r.pos.endLine.toInt)) {
+                coverageEditors.put(editor, coverageRegions)
+              }
               for (i <- r.pos.beginLine to r.pos.endLine) {
                 val line = i.toInt
-                if (forms.LogikaFormEx.coverage && !coverageLines.contains(i.toInt)) {
-                  val rh = addLineHighlighter(mm, line - 1, -1, coverageTextAttributes)
-                  rh.putUserData(reportItemKey, CoverageReportItem)
-                  coverageLines.add(line)
-                }
-                val path = editor.getVirtualFile.getCanonicalPath
-                val key = (path, r.cached.value)
+                touch(line)
                 if (r.setCache) {
-                  cachedAnalysisData.synchronized {
-                    var t = cachedAnalysisData.get(key)
-                    if (t == null) {
-                      t = (new scala.collection.mutable.HashMap[Int, Vector[RangeHighlighter]],
-                        new scala.collection.mutable.HashMap[Int, DefaultListModel[SummoningReportItem]],
-                        new scala.collection.mutable.HashMap[Int, DefaultListModel[HintReportItem]])
-                    }
-                    val (prevRhs, prevSm, prevHm) = t
-                    rhs.get(line) match {
-                      case Some(value) => prevRhs.put(line, value.filter { rh =>
-                        rh.getUserData(reportItemKey) match {
-                          case ri: ConsoleReportItem => ri.level == Level.Info || ri.level == Level.Warning
-                          case _ => false
-                        }
-                      })
-                      case _ =>
-                    }
-                    summoningListModelMap.get(line) match {
-                      case Some(value) =>
-                        val lm = new DefaultListModel[SummoningReportItem]
-                        for (i <- 0 until value.size) {
-                          val ri = value.getElementAt(i)
-                          if (ri.ok) {
-                            lm.addElement(ri.copy(message = ri.message.replace("Result:", "Result (Cached):")))
-                          }
-                        }
-                        prevSm.put(line, lm)
-                      case _ =>
-                    }
-                    hintListModelMap.get(line) match {
-                      case Some(value) =>
-                        val lm = new DefaultListModel[HintReportItem]
-                        for (i <- 0 until value.size) {
-                          val ri = value.getElementAt(i)
-                          lm.addElement(ri.copy(message = ri.message + "\n\n// Cached"))
-                        }
-                        prevHm.put(line, lm)
-                      case _ =>
-                    }
-                    cachedAnalysisData.put(key, t)
+                  for (ls <- lineSnapshot(editor, line)) {
+                    snapshots = snapshots + (line -> ls)
                   }
                 } else {
-                  val t = cachedAnalysisData.get(key)
-                  if (t != null) {
-                    val (prevRhs, prevSm, prevHm) = t
-                    prevRhs.get(line) match {
-                      case Some(rhs) =>
-                        for (rh <- rhs) {
-                          val ri = rh.getUserData(reportItemKey)
-                          val newRh = mm.addLineHighlighter(line - 1, rh.getLayer, rh.getTextAttributes(null))
-                          newRh.putUserData(reportItemKey, ri)
-                        }
-                      case _ =>
-                    }
-                    prevSm.get(line) match {
-                      case Some(sm) =>
-                        for (i <- 0 until sm.size()) {
-                          val ri = sm.elementAt(i)
-                          summoningReportItem(summoningListModelMap, rhs, editor, ri, line)
-                        }
-                      case _ =>
-                    }
-                    prevHm.get(line) match {
-                      case Some(hm) =>
-                        for (i <- 0 until hm.size) {
-                          val ri = hm.elementAt(i)
-                          if (!ri.terminated) {
-                            hintReportItem(hintListModelMap, rhs, editor, ri, line)
-                          }
-                        }
-                      case _ =>
-                    }
+                  for (entry <- cachedOpt; ls <- entry.lines.get(line)) {
+                    replayLineSnapshot(project, file, editor, line, ls)
                   }
                 }
               }
+              if (r.setCache) analysisCache.merge(key, snapshots)
             } catch {
               case t: Throwable => logStackTrace(t)
             }
             case _ =>
               for ((line, ri) <- processReport(project, file, r)) try {
+                touch(line)
                 ri match {
                   case ri: ConsoleReportItem => consoleReportItems(listModel, rhs, editor, ri, line)
                   case ri: HintReportItem => hintReportItem(hintListModelMap, rhs, editor, ri, line)
@@ -1701,51 +2201,62 @@ object SireumClient {
           }
         }
 
-        ApplicationManager.getApplication.invokeLater(() => processResultH())
+        stagePayload(r)
+        applyOnEdt(r.id, () => Metrics.timeEdt(r)(processResultH()))
     }
   }
 
-  def launchSMT2Solver(project: Project, editor: Editor): Unit = {
-    def execute(command: String): Unit = ApplicationManager.getApplication.invokeLaterOnWriteThread(() => {
-      val ttwm = TerminalToolWindowManager.getInstance(project)
-      var window = ttwm.getToolWindow
-      if (window == null) {
-        window = ToolWindowManager.getInstance(project).getToolWindow("Terminal")
+  // Moves an '@' payload into the spill store on the IO lane before the result is posted, so processReport on the
+  // EDT only adopts the staged handle; results stay in order because the dispatch thread waits for the move
+  private def stagePayload(r: org.sireum.server.protocol.Response): Unit = {
+    import org.sireum.server.protocol.Logika
+    val ref = r match {
+      case r: Logika.Verify.Smt2Query => r.query.value
+      case r: Logika.Verify.State => r.claims.value
+      case r: Logika.Verify.Info => r.message.value
+      case _ => return
+    }
+    if (!ref.startsWith("@")) return
+    val staged = new CompletableFuture[Unit]
+    Util.async(Lanes.Lane.IO, Lanes.Priority.Foreground)(() =>
+      try SpillStore.stage(java.nio.file.Paths.get(ref.substring(1))) finally staged.complete(()))
+    try staged.get(10, TimeUnit.SECONDS) catch {
+      case _: TimeoutException =>
+      case _: InterruptedException => Thread.currentThread.interrupt()
+    }
+  }
+
+  def smt2Solvers(text: String): Vector[(String, String)] = {
+    var r = Vector[(String, String)]()
+    val solverIndex = text.indexOf(smt2SolverPrefix)
+    if (solverIndex >= 0) {
+      val solverArgumentsIndex = text.indexOf(smt2SolverArgsPrefix, solverIndex)
+      if (solverArgumentsIndex >= 0) {
+        val solverPath = text.substring(solverIndex + smt2SolverPrefix.length, text.indexOf('\n', solverIndex)).trim
+        val solverArguments = text.substring(solverArgumentsIndex + smt2SolverArgsPrefix.length,
+          text.indexOf('\n', solverArgumentsIndex)).trim
+        r = r :+ ((solverPath, solverArguments))
       }
-      window.activate(null)
-      val content = window.getContentManager.findContent(smt2TabName)
-      if (content != null) {
-        ttwm.detachWidgetAndRemoveContent(content)
+    } else {
+      var solverArgumentsIndex = text.indexOf(smt2SolverAndArgsPrefix, solverIndex)
+      while (solverArgumentsIndex >= 0) {
+        solverArgumentsIndex = text.indexOf("; *", solverArgumentsIndex)
+        solverArgumentsIndex = text.indexOf(": ", solverArgumentsIndex)
+        val n = text.indexOf('\n', solverArgumentsIndex)
+        val Array(solverPath, solverArguments) = text.substring(solverArgumentsIndex + 2, n).split(',')
+        r = r :+ ((solverPath.trim, solverArguments.trim))
+        solverArgumentsIndex = text.indexOf("; *", n)
       }
-      val widget = ttwm.createLocalShellWidget(project.getBasePath, smt2TabName)
-      widget.setAutoscrolls(true)
-      widget.requestFocus()
-      widget.executeCommand(command.replaceAll(" -in ", " "))
-    })
+    }
+    r
+  }
 
+  def launchSMT2Solver(project: Project, editor: Editor): Unit = {
     if (editor != null) Util.getPath(editor.getVirtualFile) match {
       case Some(path) =>
         val text = editor.getDocument.getText
-        val solverIndex = text.indexOf(smt2SolverPrefix)
-        if (solverIndex >= 0) {
-          val solverArgumentsIndex = text.indexOf(smt2SolverArgsPrefix, solverIndex)
-          if (solverArgumentsIndex >= 0) {
-            val solverPath = text.substring(solverIndex + smt2SolverPrefix.length, text.indexOf('\n', solverIndex)).trim
-            val solverArguments = text.substring(solverArgumentsIndex + smt2SolverArgsPrefix.length,
-              text.indexOf('\n', solverArgumentsIndex)).trim
-            execute(s""""$solverPath" $solverArguments "${path.string.value}"""")
-          }
-        } else {
-          var solverArgumentsIndex = text.indexOf(smt2SolverAndArgsPrefix, solverIndex)
-          while (solverArgumentsIndex >= 0) {
-            solverArgumentsIndex = text.indexOf("; *", solverArgumentsIndex)
-            solverArgumentsIndex = text.indexOf(": ", solverArgumentsIndex)
-            val n = text.indexOf('\n', solverArgumentsIndex)
-            val Array(solverPath, solverArguments) = text.substring(solverArgumentsIndex + 2, n).split(',')
-            execute(s""""${solverPath.trim}" ${solverArguments.trim} "${path.string.value}"""")
-            solverArgumentsIndex = text.indexOf("; *", n)
-          }
-        }
+        val solvers = SMTLIBv2Portfolio.solvers(smt2Solvers(text), path.string.value)
+        if (solvers.nonEmpty) SMTLIBv2Portfolio.launch(project, editor.getVirtualFile, path.string.value, text, solvers)
       case _ =>
     }
   }
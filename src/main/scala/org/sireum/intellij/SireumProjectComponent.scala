@@ -31,7 +31,9 @@ import com.intellij.openapi.components.ProjectComponent
 import com.intellij.openapi.fileEditor.{FileEditorManager, FileEditorManagerEvent, FileEditorManagerListener, TextEditor}
 import com.intellij.openapi.progress.impl.CoreProgressManager
 import com.intellij.openapi.project.Project
-import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.newvfs.BulkFileListener
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent
+import com.intellij.openapi.vfs.{VirtualFile, VirtualFileManager}
 import com.intellij.openapi.wm.{ToolWindowAnchor, ToolWindowManager, WindowManager}
 
 import javax.swing.event.HyperlinkEvent
@@ -39,6 +41,9 @@ import javax.swing.event.HyperlinkEvent
 class SireumProjectComponent(iproject: Project) extends ProjectComponent {
   override def projectClosed(): Unit = {
     SireumToolWindowFactory.removeToolWindow(iproject)
+    SireumClient.analysisCache.evictPathPrefix(iproject.getBasePath)
+    SireumClient.closeResultStore(iproject)
+    SlangFileIndex.close(iproject)
   }
 
   override def projectOpened(): Unit = {
@@ -52,7 +57,7 @@ class SireumProjectComponent(iproject: Project) extends ProjectComponent {
         new FileEditorManagerListener {
           override def fileClosed(source: FileEditorManager,
                                   file: VirtualFile): Unit = {
-            SireumClient.editorClosed(iproject)
+            SireumClient.editorClosed(iproject, file)
           }
 
           override def fileOpened(source: FileEditorManager,
@@ -76,13 +81,19 @@ class SireumProjectComponent(iproject: Project) extends ProjectComponent {
         })
     })
 
+    val index = SlangFileIndex(iproject)
+    iproject.getMessageBus.connect(iproject).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener {
+      override def after(events: java.util.List[_ <: VFileEvent]): Unit = index.update(events)
+    })
+    Util.async(Lanes.Lane.Index, Lanes.Priority.Background)(() => index.build())
+
+    if (SireumApplicationComponent.startup) {
+      Util.async(Lanes.Lane.Server, Lanes.Priority.Foreground)(() => SireumClient.init(iproject))
+    }
+
     new Thread(() => {
       Thread.sleep(5000)
 
-      if (SireumApplicationComponent.startup) {
-        SireumClient.init(iproject)
-      }
-
       while (!CoreProgressManager.getCurrentIndicators.isEmpty) {
         Thread.sleep(1000)
       }
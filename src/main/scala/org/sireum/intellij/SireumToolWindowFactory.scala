@@ -30,25 +30,28 @@ import com.intellij.execution.ui.ConsoleView
 import com.intellij.notification.{Notification, NotificationType}
 import com.intellij.openapi.actionSystem.{ActionManager, AnAction}
 import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.fileChooser.{FileChooser, FileChooserDescriptorFactory, FileChooserFactory, FileSaverDescriptor}
 import com.intellij.openapi.fileEditor.{FileEditorManager, OpenFileDescriptor}
 
-import java.util.concurrent.{ConcurrentHashMap, TimeUnit}
+import java.util.concurrent.{ConcurrentHashMap, ScheduledFuture, TimeUnit}
+import java.util.concurrent.atomic.AtomicLong
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.ui.Messages
+import com.intellij.openapi.util.Disposer
 import com.intellij.openapi.vfs.LocalFileSystem
 import com.intellij.openapi.wm.ToolWindow
 import com.intellij.openapi.wm.ex.ToolWindowEx
 import com.intellij.ui.JBColor
+import com.intellij.ui.components.{JBScrollPane, JBTextArea}
 import com.intellij.ui.content.ContentFactory
 import com.intellij.util.ui.tree.AbstractTreeModel
-import org.antlr.v4.runtime.{BaseErrorListener, CharStreams, CommonTokenStream, RecognitionException, Recognizer}
 import org.sireum.intellij.Util.{ListCellRenderer, ListComponentAdapter}
 import org.sireum.intellij.logika.LogikaToolWindowForm
-import org.sireum.smtlib.parser.{SMTLIBv2Lexer, SMTLIBv2Parser}
 
-import java.awt.Color
-import java.awt.event.ActionEvent
+import java.awt.{BorderLayout, Color, FlowLayout, Font, Toolkit}
+import java.awt.event.{ActionEvent, KeyEvent}
 import java.io.PrintWriter
-import javax.swing.{DefaultListModel, JList, JTree}
+import javax.swing.{AbstractAction, DefaultListModel, JButton, JCheckBox, JComponent, JList, JMenuItem, JPanel, JPopupMenu, JTree, JViewport, KeyStroke, SwingUtilities, Timer}
 import javax.swing.event.{DocumentEvent, DocumentListener}
 import javax.swing.text.DefaultHighlighter
 
@@ -84,48 +87,153 @@ object SireumToolWindowFactory {
                          astTree: JTree)
 
   object SlangAstTreeModel {
-    final class Node(val text: String, val isLeaf: Boolean, val value: Object) {
+    // Nodes are identified by their position (parent node and child index), so that nodes recreated after cache
+    // eviction still match the TreePaths that JTree keeps for expansion and selection
+    final class Node(val text: String, val isLeaf: Boolean, val value: Object, val parent: Node = null,
+                     val index: Int = -1) {
+      private lazy val hash: Int = if (parent == null) System.identityHashCode(this) else parent.hashCode * 31 + index
+
+      override def hashCode: Int = hash
+
+      override def equals(other: Any): Boolean = other match {
+        case other: Node =>
+          (this eq other) || (parent != null && index == other.index && hashCode == other.hashCode && parent == other.parent)
+        case _ => false
+      }
+
       override def toString: String = {
         val className = value.getClass.getName.replace('$', '.')
         if (isLeaf) s"$text = $value ($className)" else s"$text ($className)"
       }
     }
+
+    val maxCachedNodes: Int = 16 * 1024
+    val maxIndexEntries: Int = 1024 * 1024
+
+    final class IndexEntry(val path: Array[Int], val label: String)
+
+    private final case class ChildKey(parent: Node, index: Int)
+
+    def childCount(value: Any): Int = {
+      import org.sireum._
+      value match {
+        case _: None[_] => 0
+        case _: Some[_] => 1
+        case value: IS[_, _] => value.size.toInt
+        case value: List[_] => value.length
+        case value: DatatypeSig => value.$content.length - 1
+        case value: Node => childCount(value.value)
+        case _ => 0
+      }
+    }
+
+    def child(value: Any, index: Int): (String, Object) = {
+      import org.sireum._
+      value match {
+        case Some(x) => ("value", x.asInstanceOf[Object])
+        case value: IS[_, _] => (index.toString, value.atZ(index).asInstanceOf[Object])
+        case value: List[_] => (index.toString, value(index).asInstanceOf[Object])
+        case value: DatatypeSig =>
+          val (name, v) = value.$content(index + 1)
+          (name, v.asInstanceOf[Object])
+        case value: Node => child(value.value, index)
+      }
+    }
+
+    def buildIndex(root: Node): Vector[IndexEntry] = {
+      val r = Vector.newBuilder[IndexEntry]
+      var size = 0
+      var stack = List((root.value, Array[Int]()))
+      while (stack.nonEmpty && size < maxIndexEntries) {
+        val (value, path) = stack.head
+        stack = stack.tail
+        val n = childCount(value)
+        var children = List[(Object, Array[Int])]()
+        for (i <- 0 until n) {
+          val (name, v) = child(value, i)
+          val p = path :+ i
+          val label = new Node(name, childCount(v) == 0, v).toString
+          r += new IndexEntry(p, label.toLowerCase)
+          size += 1
+          children = (v, p) :: children
+        }
+        stack = children.reverse ++ stack
+      }
+      r.result()
+    }
   }
+
   final class SlangAstTreeModel(val project: Project, root: Object) extends AbstractTreeModel {
-    import org.sireum._
 
-    override def getRoot: AnyRef = root
+    import SlangAstTreeModel._
 
-    override def getChild(parent: Any, index: Int): AnyRef = parent match {
-      case Some(x) => new SlangAstTreeModel.Node("value", isLeaf(x), x.asInstanceOf[Object])
-      case parent: IS[_, _] =>
-        val value = parent.atZ(index).asInstanceOf[Object]
-        new SlangAstTreeModel.Node(index.toString, isLeaf(value), value)
-      case parent: List[_] =>
-        val value = parent(index).asInstanceOf[Object]
-        new SlangAstTreeModel.Node(index.toString, isLeaf(value), value)
-      case parent: DatatypeSig =>
-        val (name, value) = parent.$content(index + 1)
-        val isLeaf = this.isLeaf(value)
-        new SlangAstTreeModel.Node(name, isLeaf, value.asInstanceOf[Object])
-      case parent: SlangAstTreeModel.Node => getChild(parent.value, index)
+    private val cache = new java.util.LinkedHashMap[ChildKey, Node](16, 0.75f, true) {
+      override def removeEldestEntry(eldest: java.util.Map.Entry[ChildKey, Node]): Boolean = size > maxCachedNodes
     }
+    @volatile private var indexOpt: Option[Vector[IndexEntry]] = None
+
+    override def getRoot: AnyRef = root
 
-    override def getChildCount(parent: Any): Int = parent match {
-      case _: None[_] => 0
-      case _: Some[_] => 1
-      case parent: IS[_, _] => parent.size.toInt
-      case parent: List[_] =>
-        parent.length
-      case parent: DatatypeSig =>
-        parent.$content.length - 1
-      case parent: SlangAstTreeModel.Node => getChildCount(parent.value)
-      case _ => 0
+    override def getChild(parent: Any, index: Int): AnyRef = {
+      val (parentNode, value) = parent match {
+        case parent: Node => (parent, parent.value)
+        case _ => (null, parent.asInstanceOf[AnyRef])
+      }
+      val key = ChildKey(parentNode, index)
+      cache.get(key) match {
+        case null =>
+          val (name, v) = child(value, index)
+          val node = new Node(name, isLeaf(v), v, parentNode, index)
+          cache.put(key, node)
+          node
+        case node => node
+      }
     }
 
+    override def getChildCount(parent: Any): Int = childCount(parent)
+
     override def isLeaf(node: Any): Boolean = getChildCount(node) == 0
 
-    override def getIndexOfChild(parent: Any, child: Any): Int = ???
+    override def getIndexOfChild(parent: Any, child: Any): Int = {
+      if (parent == null || child == null) return -1
+      val childValue = child match {
+        case child: Node if child.parent != null && child.parent == parent => return child.index
+        case child: Node => child.value
+        case _ => child.asInstanceOf[AnyRef]
+      }
+      val value = parent match {
+        case parent: Node => parent.value
+        case _ => parent
+      }
+      for (i <- 0 until getChildCount(parent)) {
+        if (SlangAstTreeModel.child(value, i)._2 eq childValue) return i
+      }
+      -1
+    }
+
+    def search(query: String): Vector[Array[Int]] = root match {
+      case root: Node =>
+        val index = indexOpt match {
+          case Some(index) => index
+          case _ =>
+            val index = buildIndex(root)
+            indexOpt = Some(index)
+            index
+        }
+        val q = query.toLowerCase
+        for (entry <- index if entry.label.contains(q)) yield entry.path
+      case _ => Vector()
+    }
+
+    def treePath(path: Array[Int]): javax.swing.tree.TreePath = {
+      var node: AnyRef = root
+      var tp = new javax.swing.tree.TreePath(root)
+      for (i <- path) {
+        node = getChild(node, i)
+        tp = tp.pathByAddingChild(node)
+      }
+      tp
+    }
   }
 
   val windows = new ConcurrentHashMap[Project, Forms]()
@@ -212,9 +320,116 @@ object SireumToolWindowFactory {
         case _ =>
       }
     })
+    val findInAst = new AbstractAction("Find in AST...") {
+      var lastModel: AnyRef = _
+      var lastQuery: String = ""
+      var matches: Vector[Array[Int]] = Vector()
+      var next: Int = 0
+
+      override def actionPerformed(e: ActionEvent): Unit = {
+        val tree = slangAstForm.slangAstTree
+        val model = tree.getModel match {
+          case model: SlangAstTreeModel if model.getRoot != null => model
+          case _ => return
+        }
+        val query = Messages.showInputDialog(project, "Search the Slang AST for:", "Find in AST", null, lastQuery, null)
+        if (query == null || query.isEmpty) return
+
+        def select(): Unit = {
+          if (matches.isEmpty) {
+            Util.notify(new Notification(SireumClient.groupId, "Find in AST", s"No match for \"$query\"",
+              NotificationType.INFORMATION), project, shouldExpire = true)
+          } else {
+            val tp = model.treePath(matches(next % matches.size))
+            next += 1
+            tree.setSelectionPath(tp)
+            tree.scrollPathToVisible(tp)
+          }
+        }
+
+        if ((lastModel eq model) && query == lastQuery) {
+          select()
+        } else {
+          lastModel = model
+          lastQuery = query
+          ApplicationManager.getApplication.executeOnPooledThread({ () =>
+            val r = model.search(query)
+            ApplicationManager.getApplication.invokeLater { () =>
+              matches = r
+              next = 0
+              select()
+            }
+          }: Runnable)
+        }
+      }
+    }
+    val astPopup = new JPopupMenu
+    astPopup.add(new JMenuItem(findInAst))
+    slangAstForm.slangAstTree.setComponentPopupMenu(astPopup)
+    slangAstForm.slangAstTree.getInputMap(JComponent.WHEN_FOCUSED).put(
+      KeyStroke.getKeyStroke(KeyEvent.VK_F, Toolkit.getDefaultToolkit.getMenuShortcutKeyMaskEx), "findInAst")
+    slangAstForm.slangAstTree.getActionMap.put("findInAst", findInAst)
     toolWindow.getContentManager.addContent(
       contentFactory.createContent(slangAstForm.slangAstPanel, "Slang AST", false))
 
+    val perfText = new JBTextArea
+    perfText.setEditable(false)
+    perfText.setFont(new Font(Font.MONOSPACED, Font.PLAIN, perfText.getFont.getSize))
+    perfText.setText(Metrics.report)
+    val perfEnabled = new JCheckBox("Collect", SireumApplicationComponent.metricsEnabled)
+    perfEnabled.addActionListener((_: ActionEvent) => {
+      SireumApplicationComponent.metricsEnabled = perfEnabled.isSelected
+      SireumApplicationComponent.saveConfiguration()
+      perfText.setText(Metrics.report)
+    })
+    val perfReset = new JButton("Reset")
+    perfReset.addActionListener((_: ActionEvent) => {
+      Metrics.reset()
+      perfText.setText(Metrics.report)
+    })
+    val perfExport = new JButton("Export JSON...")
+    perfExport.addActionListener((_: ActionEvent) => {
+      val dialog = FileChooserFactory.getInstance.createSaveFileDialog(
+        new FileSaverDescriptor("Export Sireum Performance Metrics", "", "json"), project)
+      val wrapper = dialog.save(java.nio.file.Paths.get(project.getBasePath), "sireum-metrics.json")
+      if (wrapper != null) {
+        val json = Metrics.toJson
+        ApplicationManager.getApplication.executeOnPooledThread({ () =>
+          java.nio.file.Files.writeString(wrapper.getFile.toPath, json)
+        }: Runnable)
+      }
+    })
+    val perfReplay = new JButton("Replay Log...")
+    perfReplay.addActionListener((_: ActionEvent) => {
+      val file = FileChooser.chooseFile(FileChooserDescriptorFactory.createSingleFileDescriptor(), project, null)
+      if (file != null) {
+        ApplicationManager.getApplication.executeOnPooledThread({ () =>
+          val notification = try {
+            val (n, elapsed) = SireumClient.replayLog(org.sireum.Os.path(file.getPath))
+            new Notification(SireumClient.groupId, "Client log replayed",
+              f"Decoded $n responses in ${file.getName} in ${elapsed / 1000000d}%.2f ms", NotificationType.INFORMATION)
+          } catch {
+            case t: Throwable =>
+              new Notification(SireumClient.groupId, "Could not replay client log", t.getMessage, NotificationType.ERROR)
+          }
+          Util.notify(notification, project, shouldExpire = true)
+        }: Runnable)
+      }
+    })
+    val perfToolbar = new JPanel(new FlowLayout(FlowLayout.LEFT))
+    perfToolbar.add(perfEnabled)
+    perfToolbar.add(perfReset)
+    perfToolbar.add(perfExport)
+    perfToolbar.add(perfReplay)
+    val perfPanel = new JPanel(new BorderLayout)
+    perfPanel.add(perfToolbar, BorderLayout.NORTH)
+    perfPanel.add(new JBScrollPane(perfText), BorderLayout.CENTER)
+    val perfTimer = new Timer(1000, (_: ActionEvent) => if (perfPanel.isShowing) perfText.setText(Metrics.report))
+    perfTimer.start()
+    Disposer.register(toolWindow.getDisposable, () => perfTimer.stop())
+    toolWindow.getContentManager.addContent(
+      contentFactory.createContent(perfPanel, "Performance", false))
+
     logikaForm.logikaToolTextExportButton.addActionListener((_: ActionEvent) => {
       var text = logikaForm.logikaTextArea.getText
 
@@ -254,12 +469,56 @@ object SireumToolWindowFactory {
 
     logikaForm.logikaToolTextField.setPlaceholderColor(new JBColor(Color.darkGray, Color.gray))
     logikaForm.logikaToolTextField.getDocument.addDocumentListener(new DocumentListener {
+      val generation = new AtomicLong
+      @volatile var pending: ScheduledFuture[_] = _
+      @volatile var index: LogikaTextIndex = _
+      @volatile var last: (String, String, Array[Int]) = ("", null, null)
+      var query: String = ""
+
+      val viewport: JViewport = SwingUtilities.getAncestorOfClass(classOf[JViewport], logikaForm.logikaTextArea) match {
+        case vp: JViewport =>
+          vp.addChangeListener(_ => highlightVisible())
+          vp
+        case _ => null
+      }
+
       override def insertUpdate(documentEvent: DocumentEvent): Unit = update(documentEvent)
 
       override def removeUpdate(documentEvent: DocumentEvent): Unit = update(documentEvent)
 
       override def changedUpdate(documentEvent: DocumentEvent): Unit = update(documentEvent)
 
+      def highlightVisible(): Unit = {
+        val textArea = logikaForm.logikaTextArea
+        val highlighter = textArea.getHighlighter
+        highlighter.removeAllHighlights()
+        val q = query
+        if (q.isEmpty) return
+        val document = textArea.getDocument
+        val length = document.getLength
+        val from = index match {
+          case idx: LogikaTextIndex if length > 0 =>
+            val prefix = document.getText(0, textArea.getLineEndOffset(math.min(1, textArea.getLineCount - 1)))
+            if (prefix.startsWith("// Filtered by: ")) idx.highlightFrom(prefix) else 1
+          case _ => 1
+        }
+        val (begin, end) = if (viewport == null) (0, length) else {
+          val r = viewport.getViewRect
+          (textArea.viewToModel2D(r.getLocation), textArea.viewToModel2D(new java.awt.Point(r.x + r.width, r.y + r.height)))
+        }
+        val windowBegin = math.max(from, begin - q.length)
+        val windowEnd = math.min(length, end + q.length)
+        if (windowBegin >= windowEnd) return
+        val window = document.getText(windowBegin, windowEnd - windowBegin)
+        var i = 0
+        var offset = window.indexOf(q, i)
+        while (offset >= 0 && windowBegin + offset <= end) {
+          i = offset + q.length
+          highlighter.addHighlight(windowBegin + offset, windowBegin + i, hpainter)
+          offset = window.indexOf(q, i)
+        }
+      }
+
       def update(documentEvent: DocumentEvent): Unit = {
         val document = documentEvent.getDocument
         val text = document.getProperty("Logika").asInstanceOf[String]
@@ -267,124 +526,52 @@ object SireumToolWindowFactory {
           return
         }
         val kind = document.getProperty("Logika Kind").asInstanceOf[String]
-        val content = document.getText(0, documentEvent.getDocument.getLength)
-        SireumClient.singleExecutor.schedule({ () =>
-          if (content == document.getText(0, documentEvent.getDocument.getLength)) {
+        val content = document.getText(0, document.getLength)
+        val gen = generation.incrementAndGet()
+        val p = pending
+        if (p != null) p.cancel(false)
+        def isCancelled(): Boolean = generation.get != gen
+        pending = SireumClient.singleExecutor.schedule({ () =>
+          if (!isCancelled()) {
             if (content.isEmpty) {
-              logikaForm.logikaTextArea.setText(text)
-              logikaForm.logikaTextArea.getHighlighter.removeAllHighlights()
-            } else {
-              kind match {
-                case "claims " =>
-                  val lines = text.split('\n')
-                  val size = lines.length
-                  var newLines = List[String]()
-                  var i = 1
-                  while (i < size) {
-                    var j = i
-                    var found = false
-                    while (j < size && !found) {
-                      if (lines(j).last == ';') {
-                        found = true
-                        var hasContent = false
-                        for (k <- i to j if lines(k).contains(content)) hasContent = true
-                        if (hasContent) {
-                          for (k <- i to j) newLines = newLines :+ lines(k)
-                        }
-                      } else if (lines(j).head == '}') {
-                        found = true
-                        var hasContent = false
-                        for (k <- i until j if lines(k).contains(content)) hasContent = true
-                        if (hasContent) for (k <- i until j) newLines = newLines :+ lines(k)
-                      }
-                      j = j + 1
-                    }
-                    i = j
-                  }
-                  val newText = s"// Filtered by: $content\n{\n${newLines.mkString("\n")}\n}"
-                  logikaForm.logikaTextArea.setText(newText)
-                  val highlighter = logikaForm.logikaTextArea.getHighlighter
-                  highlighter.removeAllHighlights()
-                  i = newText.indexOf("{") + 1
-                  var offset = newText.indexOf(content, i)
-                  while (offset > 0) {
-                    i = offset + content.length
-                    highlighter.addHighlight(offset, i, hpainter)
-                    offset = newText.indexOf(content, i)
-                  }
-                case "trace " =>
-                  val lines = text.lines.toArray
-                  var chunks = Vector[String]()
-                  var i = 0
-                  while (i < lines.length) {
-                    val line = lines(i).toString
-                    if (line.startsWith("by [") || line.startsWith("∴") || line.startsWith("Begin") || line.startsWith("info [")) {
-                      var j = i + 1
-                      var l = lines(j).toString
-                      var ls = Vector(line)
-                      while (l.nonEmpty) {
-                        ls = ls :+ l
-                        j = j + 1
-                        l = if (j < lines.length) lines(j).toString else ""
-                      }
-                      ls = ls :+ ""
-                      val chunk = ls.mkString("\n")
-                      if (chunk.contains(content)) {
-                        chunks = chunks :+ chunk
-                      }
-                    }
-                    i = i + 1
-                  }
-                  val newText = s"// Filtered by: $content\n\n${chunks.mkString("\n")}"
-                  logikaForm.logikaTextArea.setText(newText)
-                  val highlighter = logikaForm.logikaTextArea.getHighlighter
-                  highlighter.removeAllHighlights()
-                  i = 0
-                  var offset = newText.indexOf(content, i)
-                  while (offset > 0) {
-                    i = offset + content.length
-                    highlighter.addHighlight(offset, i, hpainter)
-                    offset = newText.indexOf(content, i)
-                  }
-                case _ =>
-                  val cs = CharStreams.fromString(text)
-                  val lexer = new SMTLIBv2Lexer(cs)
-                  val cts = new CommonTokenStream(lexer)
-                  val parser = new SMTLIBv2Parser(cts)
-                  parser.removeErrorListeners()
-                  parser.addErrorListener(new BaseErrorListener() {
-                    override def syntaxError(recognizer: Recognizer[_, _], offendingSymbol: Any, line: Int, charPositionInLine: Int, msg: String, e: RecognitionException): Unit = {
-                      throw new RuntimeException()
-                    }
-                  })
-                  var newText = text
-                  try {
-                    val script = parser.start().script()
-                    var chunks = Vector[String]()
-                    for (i <- 0 until script.getChildCount) {
-                      val command = script.command(i)
-                      val commandText = newText.substring(command.start.getStartIndex, command.stop.getStopIndex + 1)
-                      if (commandText.contains(content)) {
-                        chunks = chunks :+ commandText
-                      }
-                    }
-                    newText = s"// Filtered by: $content\n\n${chunks.mkString("\n")}"
-                  } catch {
-                    case _: RuntimeException =>
-                      newText = s"// Could not filter by (only highlight): $content\n\n$newText}"
-                  }
-                  logikaForm.logikaTextArea.setText(newText)
-                  val highlighter = logikaForm.logikaTextArea.getHighlighter
-                  highlighter.removeAllHighlights()
-                  var i = 0
-                  var offset = newText.indexOf(content, i)
-                  while (offset > 0) {
-                    i = offset + content.length
-                    highlighter.addHighlight(offset, i, hpainter)
-                    offset = newText.indexOf(content, i)
+              ApplicationManager.getApplication.invokeLater { () =>
+                if (!isCancelled()) {
+                  query = content
+                  logikaForm.logikaTextArea.setText(text)
+                  logikaForm.logikaTextArea.getHighlighter.removeAllHighlights()
+                }
+              }
+            } else ApplicationManager.getApplication.executeOnPooledThread({ () =>
+              try {
+                val idx = index match {
+                  case idx: LogikaTextIndex if idx.text eq text => idx
+                  case _ =>
+                    val idx = LogikaTextIndex.build(text, kind, () => isCancelled())
+                    index = idx
+                    last = ("", null, null)
+                    idx
+                }
+                val newText = if (idx.isFilterable) {
+                  val (lastQuery, lastText, lastChunks) = last
+                  val candidates =
+                    if ((lastText eq text) && lastQuery.nonEmpty && content.contains(lastQuery)) lastChunks
+                    else idx.allChunks
+                  val chunks = idx.filter(content, candidates, () => isCancelled())
+                  last = (content, text, chunks)
+                  idx.render(content, chunks)
+                } else LogikaTextIndex.unfiltered(content, text)
+                ApplicationManager.getApplication.invokeLater { () =>
+                  if (!isCancelled()) {
+                    query = content
+                    logikaForm.logikaTextArea.setText(newText)
+                    logikaForm.logikaTextArea.setCaretPosition(0)
+                    highlightVisible()
                   }
+                }
+              } catch {
+                case _: LogikaTextIndex.Cancelled =>
               }
-            }
+            }: Runnable)
           }
         }: Runnable, 100, TimeUnit.MILLISECONDS)
       }
@@ -0,0 +1,319 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import com.intellij.openapi.editor.Document
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.{Key, TextRange}
+import com.intellij.openapi.vfs.newvfs.events._
+
+import java.io.{BufferedInputStream, BufferedOutputStream, DataInputStream, DataOutputStream}
+import java.nio.charset.StandardCharsets
+import java.nio.file.attribute.BasicFileAttributes
+import java.nio.file.{FileVisitResult, Files, Path, Paths, SimpleFileVisitor, StandardCopyOption}
+import java.util.concurrent.{CompletableFuture, ConcurrentHashMap, ConcurrentSkipListMap}
+import scala.jdk.CollectionConverters._
+
+object SlangFileIndex {
+
+  final case class Header(isSireum: Boolean, isLogika: Boolean, compactFirstLine: String)
+
+  final case class Entry(modified: Long, length: Long, header: Header)
+
+  val none: Header = Header(isSireum = false, isLogika = false, "")
+  val extensions: Set[String] = Set("scala", "sc", "slang", "logika", "cmd")
+  val skippedDirs: Set[String] = Set("out", "target", "node_modules")
+  val maxFirstLineLength: Int = 4096
+  val maxOthers: Int = 1024
+
+  private val magic = 0x53464849
+  private val version = 1
+  private val documentKey = new Key[(Long, Header)]("Sireum File Header")
+  private val indexes = new ConcurrentHashMap[String, SlangFileIndex]
+
+  def apply(project: Project): SlangFileIndex =
+    indexes.computeIfAbsent(project.getBasePath, base =>
+      new SlangFileIndex(Paths.get(base), Paths.get(base, ".idea", "sireum", "file-headers.bin")))
+
+  def close(project: Project): Unit = {
+    val index = indexes.remove(project.getBasePath)
+    if (index != null) index.save()
+  }
+
+  def isIndexed(name: String): Boolean = {
+    val i = name.lastIndexOf('.')
+    i >= 0 && extensions.contains(name.substring(i + 1))
+  }
+
+  def detect(path: String, firstLine: String): Header = {
+    val (hasSireum, compactFirstLine, _) = org.sireum.lang.parser.SlangParser.detectSlang(
+      org.sireum.Some(org.sireum.String(path)), org.sireum.String(firstLine))
+    Header(hasSireum.value, compactFirstLine.value.contains("#Logika") || path.endsWith(".logika"),
+      compactFirstLine.value)
+  }
+
+  def firstLine(path: Path): String = try {
+    val reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)
+    try {
+      val line = reader.readLine()
+      if (line == null) "" else if (line.length > maxFirstLineLength) line.substring(0, maxFirstLineLength) else line
+    } finally reader.close()
+  } catch {
+    case _: Throwable => ""
+  }
+
+  // A loaded document is detected from its own first line (cached per modification stamp), saved or not, so this
+  // never touches the disk on the EDT; without one, the project index answers
+  def header(project: Project, path: org.sireum.Os.Path, document: Document): Header =
+    if (document != null) documentHeader(path.string.value, document)
+    else SlangFileIndex(project).header(path.string.value)
+
+  def documentHeader(path: String, document: Document): Header = {
+    val stamp = document.getModificationStamp
+    val cached = document.getUserData(documentKey)
+    if (cached != null && cached._1 == stamp) return cached._2
+    val end = if (document.getLineCount > 0) document.getLineEndOffset(0) else 0
+    val r = detect(path, document.getText(new TextRange(0, Math.min(end, maxFirstLineLength))))
+    document.putUserData(documentKey, (stamp, r))
+    r
+  }
+}
+
+final class SlangFileIndex(base: Path, store: Path) {
+
+  import SlangFileIndex._
+
+  // Keys are absolute, normalized paths under the real (symlink-free) project root; paths spelled through the
+  // project base path as given by the IDE are mapped onto it, so walks, lookups and VFS events agree
+  private val root: Path = try base.toRealPath() catch {
+    case _: Throwable => base.toAbsolutePath.normalize
+  }
+  private val givenRoot: Path = base.toAbsolutePath.normalize
+  // Sorted, so that a directory's entries form one contiguous key range
+  private val entries = new ConcurrentSkipListMap[String, Entry]
+  private val ready = new CompletableFuture[Unit]
+  @volatile private var dirty = false
+  // Files the index does not keep (outside the root or not a Slang extension), revalidated by modification time and
+  // size so repeated lookups only stat them
+  private val others = new ConcurrentHashMap[String, Entry]
+
+  def isReady: Boolean = ready.isDone
+
+  def await(): Unit = try ready.get() catch {
+    case _: Throwable =>
+  }
+
+  def key(path: String): String = {
+    val p = Paths.get(path).toAbsolutePath.normalize
+    if (p.startsWith(root) || !p.startsWith(givenRoot)) p.toString else root.resolve(givenRoot.relativize(p)).toString
+  }
+
+  private def isUnder(key: String): Boolean = Paths.get(key).startsWith(root)
+
+  def header(path: String): Header = {
+    val k = key(path)
+    val e = entries.get(k)
+    if (e != null) e.header else refresh(k)
+  }
+
+  def hasSlang: Boolean = {
+    await()
+    entries.values.asScala.exists(_.header.isSireum)
+  }
+
+  def logikaFiles: Vector[(String, Long)] = {
+    await()
+    (for ((path, e) <- entries.asScala.iterator if e.header.isLogika) yield (path, e.length)).toVector.sortBy(_._1)
+  }
+
+  def refresh(path: String): Header = {
+    val p = Paths.get(path)
+    try {
+      val attrs = Files.readAttributes(p, classOf[BasicFileAttributes])
+      if (!attrs.isRegularFile) {
+        remove(path)
+        none
+      } else if (isUnder(path) && isIndexed(path)) {
+        val e = Entry(attrs.lastModifiedTime.toMillis, attrs.size, detect(path, firstLine(p)))
+        entries.put(path, e)
+        dirty = true
+        e.header
+      } else {
+        val modified = attrs.lastModifiedTime.toMillis
+        val cached = others.get(path)
+        if (cached != null && cached.modified == modified && cached.length == attrs.size) return cached.header
+        val e = Entry(modified, attrs.size, detect(path, firstLine(p)))
+        if (others.size >= maxOthers) others.clear()
+        others.put(path, e)
+        e.header
+      }
+    } catch {
+      case _: Throwable =>
+        remove(path)
+        others.remove(path)
+        none
+    }
+  }
+
+  private def remove(path: String): Unit = if (entries.remove(path) != null) dirty = true
+
+  private def removeTree(path: String): Unit = {
+    remove(path)
+    val prefix = path + java.io.File.separator
+    val subtree = entries.subMap(prefix, true, prefix + Char.MaxValue, false)
+    if (!subtree.isEmpty) {
+      subtree.clear()
+      dirty = true
+    }
+  }
+
+  private def walk(dir: Path)(f: (Path, BasicFileAttributes) => Unit): Unit =
+    Files.walkFileTree(dir, new SimpleFileVisitor[Path] {
+      override def preVisitDirectory(d: Path, attrs: BasicFileAttributes): FileVisitResult = {
+        val name = if (d.getFileName == null) "" else d.getFileName.toString
+        if (d != root && (name.startsWith(".") || skippedDirs.contains(name))) FileVisitResult.SKIP_SUBTREE
+        else FileVisitResult.CONTINUE
+      }
+
+      override def visitFile(file: Path, attrs: BasicFileAttributes): FileVisitResult = {
+        if (attrs.isRegularFile && isIndexed(file.getFileName.toString)) f(file, attrs)
+        FileVisitResult.CONTINUE
+      }
+
+      override def visitFileFailed(file: Path, exc: java.io.IOException): FileVisitResult = FileVisitResult.CONTINUE
+    })
+
+  // Loads the stored headers, then re-detects (in parallel) only the files whose timestamp or size changed
+  def build(): Unit = try {
+    load()
+    val found = new java.util.ArrayList[(String, Long, Long)]
+    walk(root)((file, attrs) => found.add((file.toString, attrs.lastModifiedTime.toMillis, attrs.size)))
+    val seen = new java.util.HashSet[String]
+    for (t <- found.asScala) seen.add(t._1)
+    for (key <- entries.keySet.asScala.toVector if !seen.contains(key)) remove(key)
+    found.parallelStream().forEach { t =>
+      val (path, modified, length) = t
+      val e = entries.get(path)
+      if (e == null || e.modified != modified || e.length != length) {
+        entries.put(path, Entry(modified, length, detect(path, firstLine(Paths.get(path)))))
+        dirty = true
+      }
+    }
+    save()
+  } catch {
+    case t: Throwable => SireumClient.logStackTrace(t)
+  } finally {
+    ready.complete(())
+  }
+
+  // Invalidates synchronously (so lookups fall back to reading the file) and re-detects on the Index lane
+  def update(events: java.util.List[_ <: VFileEvent]): Unit = {
+    def isDirectory(e: VFileEvent): Boolean = {
+      val f = e.getFile
+      f != null && f.isDirectory
+    }
+
+    def drop(path: String, isDirectory: Boolean): Unit = {
+      val k = key(path)
+      if (isUnder(k)) {
+        if (isDirectory) removeTree(k) else remove(k)
+      }
+    }
+
+    var changed = Vector[String]()
+    for (event <- events.asScala) event match {
+      case e: VFileDeleteEvent => drop(e.getPath, isDirectory(e))
+      case e: VFileMoveEvent =>
+        drop(e.getOldPath, isDirectory(e))
+        changed = changed :+ key(e.getPath)
+      case e: VFilePropertyChangeEvent if e.isRename =>
+        drop(e.getOldPath, isDirectory(e))
+        changed = changed :+ key(e.getNewPath)
+      case e@(_: VFileContentChangeEvent | _: VFileCreateEvent | _: VFileCopyEvent) =>
+        drop(e.getPath, isDirectory = false)
+        changed = changed :+ key(e.getPath)
+      case _ =>
+    }
+    changed = changed.filter(isUnder)
+    if (changed.nonEmpty) Util.async(Lanes.Lane.Index, Lanes.Priority.Background) { () =>
+      for (path <- changed) {
+        val p = Paths.get(path)
+        if (Files.isDirectory(p)) walk(p)((file, _) => refresh(file.toString))
+        else if (isIndexed(path)) refresh(path)
+      }
+    }
+  }
+
+  private def load(): Unit = {
+    if (!Files.isRegularFile(store)) return
+    try {
+      val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(store)))
+      try {
+        if (in.readInt() != magic || in.readInt() != version) return
+        val n = in.readInt()
+        for (_ <- 0 until n) {
+          val path = in.readUTF()
+          val modified = in.readLong()
+          val length = in.readLong()
+          val flags = in.readByte()
+          val compactFirstLine = in.readUTF()
+          if (isUnder(path))
+            entries.putIfAbsent(path, Entry(modified, length, Header((flags & 1) != 0, (flags & 2) != 0, compactFirstLine)))
+        }
+      } finally in.close()
+    } catch {
+      case _: Throwable => entries.clear()
+    }
+  }
+
+  def save(): Unit = synchronized {
+    if (!dirty) return
+    dirty = false
+    try {
+      Files.createDirectories(store.getParent)
+      val tmp = store.resolveSibling(store.getFileName.toString + ".tmp")
+      val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))
+      try {
+        val snapshot = entries.asScala.toVector
+        out.writeInt(magic)
+        out.writeInt(version)
+        out.writeInt(snapshot.size)
+        for ((path, e) <- snapshot) {
+          out.writeUTF(path)
+          out.writeLong(e.modified)
+          out.writeLong(e.length)
+          out.writeByte((if (e.header.isSireum) 1 else 0) | (if (e.header.isLogika) 2 else 0))
+          out.writeUTF(e.header.compactFirstLine)
+        }
+      } finally out.close()
+      Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } catch {
+      case t: Throwable =>
+        dirty = true
+        SireumClient.logStackTrace(t)
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, StandardCopyOption}
+import java.util.concurrent.atomic.AtomicLong
+import java.util.zip.{GZIPInputStream, GZIPOutputStream}
+
+object SpillStore {
+
+  sealed trait Payload {
+    def length: Long
+
+    def isSpilled: Boolean
+
+    def load(): String
+
+    def preview(maxChars: Int): String
+  }
+
+  final case class Inline(text: String) extends Payload {
+    def length: Long = text.length
+
+    def isSpilled: Boolean = false
+
+    def load(): String = text
+
+    def preview(maxChars: Int): String = if (text.length <= maxChars) text else text.substring(0, maxChars)
+  }
+
+  final class Spilled private[SpillStore](val id: Long, val length: Long,
+                                          @volatile private[SpillStore] var owner: SpillStore) extends Payload {
+    @volatile private[SpillStore] var transform: String => String = identity
+    @volatile private[SpillStore] var file: Path = _
+    @volatile private[SpillStore] var compressed: Boolean = false
+    @volatile private[SpillStore] var stored: Long = 0
+    @volatile private[SpillStore] var head: String = ""
+
+    def isSpilled: Boolean = true
+
+    def load(): String = synchronized {
+      val f = file
+      if (f == null) return s"(Payload of $length bytes was evicted from the spill store)"
+      val text = try {
+        if (compressed) {
+          val in = new GZIPInputStream(Files.newInputStream(f), 64 * 1024)
+          try new String(in.readAllBytes, StandardCharsets.UTF_8) finally in.close()
+        } else Files.readString(f)
+      } catch {
+        case t: Throwable => s"(Could not load spilled payload: ${t.getMessage})"
+      }
+      transform(text)
+    }
+
+    def preview(maxChars: Int): String = transform(if (head.length <= maxChars) head else head.substring(0, maxChars))
+  }
+
+  val compressThreshold: Long = 64 * 1024
+
+  val headChars: Int = 1024
+
+  // The size cap is shared by all stores, so the number of open files does not multiply the disk budget; eviction
+  // takes the oldest payload across stores
+  private val totalBytes = new AtomicLong
+  private val entries = new java.util.concurrent.ConcurrentLinkedDeque[Spilled]
+
+  // Payloads moved in by stage ahead of the owning store's spill call
+  private val staged = new java.util.concurrent.ConcurrentHashMap[Path, Payload]
+  private lazy val stagingStore = new SpillStore
+
+  // Does the file move and head read of spill up front (off the EDT); the next spill of the same source only adopts
+  // the staged handle
+  def stage(source: Path): Unit = staged.put(source, stagingStore.store(source))
+
+  def maxBytes: Long = SireumApplicationComponent.spillStoreMegabytes * 1024L * 1024L
+
+  def size: Long = totalBytes.get
+
+  private def evict(): Unit = {
+    while (totalBytes.get > maxBytes && (entries.peekFirst() ne entries.peekLast())) {
+      val e = entries.pollFirst()
+      if (e != null) discard(e)
+    }
+  }
+
+  private def discard(e: Spilled): Unit = e.synchronized {
+    val f = e.file
+    if (f != null) {
+      e.file = null
+      try Files.deleteIfExists(f) catch {
+        case _: Throwable =>
+      }
+      totalBytes.addAndGet(-e.stored)
+    }
+    if (!staged.isEmpty) staged.values.remove(e)
+  }
+
+  private def readHead(file: Path): String = {
+    val reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)
+    try {
+      val buffer = new Array[Char](headChars)
+      var n = 0
+      var r = 0
+      while (n < headChars && r >= 0) {
+        r = reader.read(buffer, n, headChars - n)
+        if (r > 0) n += r
+      }
+      new String(buffer, 0, n)
+    } finally reader.close()
+  }
+
+  private lazy val root: Path = {
+    val r = Files.createTempDirectory("sireum-spill")
+    Runtime.getRuntime.addShutdownHook(new Thread(() => deleteAll(r)))
+    r
+  }
+
+  private def deleteAll(dir: Path): Unit =
+    try {
+      val s = Files.walk(dir)
+      try s.sorted(java.util.Comparator.reverseOrder()).forEach(p => Files.deleteIfExists(p))
+      finally s.close()
+    } catch {
+      case _: Throwable =>
+    }
+}
+
+final class SpillStore {
+
+  import SpillStore._
+
+  private val ids = new AtomicLong
+  @volatile private var dirOpt: Option[Path] = None
+
+  private def dir: Path = synchronized {
+    dirOpt match {
+      case Some(d) => d
+      case _ =>
+        val d = Files.createTempDirectory(root, "store")
+        dirOpt = Some(d)
+        d
+    }
+  }
+
+  def spill(source: Path, transform: String => String = identity): Payload = {
+    val payload = staged.remove(source) match {
+      case null => store(source)
+      case p => p
+    }
+    payload match {
+      case entry: Spilled =>
+        entry.transform = transform
+        entry.owner = this
+      case _ =>
+    }
+    payload
+  }
+
+  private def store(source: Path): Payload = {
+    val size = try Files.size(source) catch {
+      case _: Throwable => return Inline(s"(Missing spilled payload: $source)")
+    }
+    val entry = new Spilled(ids.incrementAndGet(), size, this)
+    val target = dir.resolve(s"${entry.id}.txt")
+    try Files.move(source, target, StandardCopyOption.REPLACE_EXISTING)
+    catch {
+      case t: Throwable => return Inline(s"(Could not spill payload $source: ${t.getMessage})")
+    }
+    entry.head = try readHead(target) catch {
+      case _: Throwable => ""
+    }
+    entry.file = target
+    entry.stored = size
+    entries.addLast(entry)
+    totalBytes.addAndGet(size)
+    if (size >= compressThreshold) {
+      com.intellij.openapi.application.ApplicationManager.getApplication.executeOnPooledThread({ () =>
+        compress(entry)
+      }: Runnable)
+    }
+    evict()
+    entry
+  }
+
+  private def compress(entry: Spilled): Unit = entry.synchronized {
+    val f = entry.file
+    if (f == null || entry.compressed) return
+    val target = f.resolveSibling(s"${entry.id}.gz")
+    try {
+      val out = new GZIPOutputStream(Files.newOutputStream(target), 64 * 1024)
+      try Files.copy(f, out) finally out.close()
+      val size = Files.size(target)
+      Files.delete(f)
+      entry.file = target
+      entry.compressed = true
+      totalBytes.addAndGet(size - entry.stored)
+      entry.stored = size
+    } catch {
+      case _: Throwable => Files.deleteIfExists(target)
+    }
+  }
+
+  def close(): Unit = {
+    entries.removeIf { e =>
+      if (e.owner eq this) {
+        discard(e)
+        true
+      } else false
+    }
+    synchronized {
+      for (d <- dirOpt) deleteAll(d)
+      dirOpt = None
+    }
+  }
+}
@@ -100,11 +100,21 @@ object Util {
     return null
   }
 
-  def isSireumOrLogikaFile(project: Project)(content: => org.sireum.String): (Boolean, Boolean) =
-    getFilePath(project) match {
-      case Some(p) => isSireumOrLogikaFile(p)(content)
+  def isSireumOrLogikaFile(project: Project): (Boolean, Boolean) = {
+    if (project.isDisposed) {
+      return (false, false)
+    }
+    val editor = FileEditorManager.getInstance(project).getSelectedTextEditor
+    if (editor == null) return (false, false)
+    val file = FileDocumentManager.getInstance.getFile(editor.getDocument)
+    if (file == null) return (false, false)
+    getPath(file) match {
+      case Some(p) =>
+        val header = SlangFileIndex.header(project, p, editor.getDocument)
+        (header.isSireum, header.isLogika)
       case _ => (false, false)
     }
+  }
 
   def isSysMLv2File(project: Project): Boolean =
     getFilePath(project) match {
@@ -174,33 +184,11 @@ object Util {
     }
   }
 
-  def hasSlang(root: org.sireum.Os.Path): Boolean = {
-    import org.sireum._
-    var found = F
-    def rec(dir: Os.Path): Unit = {
-      for (p <- dir.list if !found) {
-        if (p.isDir) {
-          rec(p)
-        } else {
-          if (p.ext.value == "sc" || p.ext.value == "scala") {
-            for (line <- p.readLineStream.take(1)) {
-              if (lang.parser.SlangParser.detectSlang(Some(p.toUri), line)._1) {
-                found = T
-              }
-            }
-          }
-        }
-      }
-    }
-    rec(root)
-    found
-  }
-
   def recommendReload(iproject: Project): Boolean = {
     import org.sireum._
     val root = Os.path(iproject.getBasePath)
     if (!isProyek(iproject)) {
-      if (!(root / "build.sbt").exists && !(root / "build.sc").exists && hasSlang(root)) {
+      if (!(root / "build.sbt").exists && !(root / "build.sc").exists && SlangFileIndex(iproject).hasSlang) {
         Util.notify(Util.notification(SireumClient.groupId, "Generate proyek?",
           """<p>Proyek definition is not defined. <a href="">Generate</a>?</p>""",
           NotificationType.INFORMATION, (_: Notification, _: HyperlinkEvent) => {
@@ -277,13 +265,6 @@ object Util {
     false
   }
 
-  def isSireumOrLogikaFile(path: org.sireum.Os.Path)(content: => org.sireum.String = path.read): (Boolean, Boolean) = {
-    if (!path.exists) return (false, false)
-    val p = path.string.value
-    val (hasSireum, compactFirstLine, _) = org.sireum.lang.parser.SlangParser.detectSlang(org.sireum.Some(p), content)
-    return (hasSireum, compactFirstLine.contains("#Logika") || path.ext.value == "logika")
-  }
-
   def notifyDebug(content: String, project: Project): Unit = notify(new Notification(SireumClient.groupId, content,
     NotificationType.INFORMATION), project, None)
 
@@ -314,32 +295,13 @@ object Util {
     n
   }
 
-  val queue: java.util.concurrent.LinkedBlockingQueue[Option[() => Unit]] = new java.util.concurrent.LinkedBlockingQueue
-  private var threadOpt: Option[Thread] = None
+  def async(f: () => Unit): Unit = Lanes.submit(Lanes.Lane.Request, Lanes.Priority.Foreground)(f)
 
-  def async(f: () => Unit): Unit = synchronized {
-    threadOpt match {
-      case Some(_) =>
-      case _ =>
-        val t = new Thread {
-          override def run(): Unit = {
-            var terminated = false
-            while (!terminated) {
-              queue.take() match {
-                case Some(f) => f()
-                case _ => terminated = true
-              }
-            }
-          }
-        }
-        t.start()
-        threadOpt = Some(t)
-    }
-    queue.add(Some(f))
-  }
+  def async(lane: Lanes.Lane.Value, priority: Lanes.Priority.Value, key: AnyRef = null)(f: () => Unit): Unit =
+    Lanes.submit(lane, priority, key)(f)
 
   def finalise(): Unit = {
-    queue.add(None)
+    Lanes.shutdown()
   }
 
   lazy val isLogikaSupportedPlatform: Boolean = org.sireum.Os.kind match {
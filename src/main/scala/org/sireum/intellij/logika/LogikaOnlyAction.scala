@@ -38,7 +38,7 @@ trait LogikaOnlyAction extends SireumAction {
     val project = e.getProject
     val editor = FileEditorManager.getInstance(project).getSelectedTextEditor
     if (editor != null) e.getPresentation.setEnabledAndVisible(project != null && Util.isLogikaSupportedPlatform &&
-      Util.isSireumOrLogikaFile(project)(org.sireum.String(editor.getDocument.getText))._2)
+      Util.isSireumOrLogikaFile(project)._2)
   }
 }
 
@@ -145,7 +145,7 @@ final class LogikaCheckActionLine extends LogikaCheckAction {
     val project = e.getProject
     val editor = FileEditorManager.getInstance(project).getSelectedTextEditor
     if (editor != null) e.getPresentation.setEnabledAndVisible(project != null && Util.isLogikaSupportedPlatform &&
-      Util.isSireumOrLogikaFile(project)(org.sireum.String(editor.getDocument.getText)) == (true, true))
+      Util.isSireumOrLogikaFile(project) == (true, true))
   }
 }
 
@@ -157,7 +157,7 @@ final class LogikaCheckActionInterprocedural extends LogikaCheckAction {
     val project = e.getProject
     val editor = FileEditorManager.getInstance(project).getSelectedTextEditor
     if (editor != null) e.getPresentation.setEnabledAndVisible(project != null && Util.isLogikaSupportedPlatform &&
-      Util.isSireumOrLogikaFile(project)(org.sireum.String(editor.getDocument.getText))._1)
+      Util.isSireumOrLogikaFile(project)._1)
   }
 }
 
@@ -0,0 +1,216 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij.smtlib
+
+import com.intellij.lexer.{Lexer, LexerBase}
+import com.intellij.psi.TokenType
+import com.intellij.psi.tree.IElementType
+import org.antlr.intellij.adaptor.lexer.{ANTLRLexerAdaptor, PSIElementTypeFactory}
+import org.sireum.smtlib.parser.SMTLIBv2Lexer
+
+object SMTLIBv2FastLexer {
+  private lazy val tokenTypes = {
+    SMTLIBv2ParserDefinition.ID
+    PSIElementTypeFactory.getTokenIElementTypes(SMTLIBV2Language.INSTANCE)
+  }
+
+  private lazy val literals: java.util.HashMap[String, IElementType] = {
+    val r = new java.util.HashMap[String, IElementType]
+    val vocabulary = SMTLIBv2Lexer.VOCABULARY
+    for (i <- 1 to vocabulary.getMaxTokenType) {
+      val name = vocabulary.getLiteralName(i)
+      if (name != null && name.length > 2) r.put(name.substring(1, name.length - 1), tokenTypes.get(i))
+    }
+    r
+  }
+
+  private lazy val maxLiteralLength: Int = {
+    var r = 0
+    literals.forEach((k, _) => r = math.max(r, k.length))
+    r
+  }
+
+  lazy val PAR_OPEN: IElementType = literals.get("(")
+  lazy val PAR_CLOSE: IElementType = literals.get(")")
+  lazy val COLON: IElementType = literals.get(":")
+  lazy val WS: IElementType = tokenTypes.get(SMTLIBv2Lexer.WS)
+  lazy val COMMENT: IElementType = tokenTypes.get(SMTLIBv2Lexer.Comment)
+  lazy val STRING: IElementType = tokenTypes.get(SMTLIBv2Lexer.String)
+  lazy val QUOTED_SYMBOL: IElementType = tokenTypes.get(SMTLIBv2Lexer.QuotedSymbol)
+  lazy val SYMBOL: IElementType = tokenTypes.get(SMTLIBv2Lexer.UndefinedSymbol)
+  lazy val NUMERAL: IElementType = tokenTypes.get(SMTLIBv2Lexer.Numeral)
+  lazy val DECIMAL: IElementType = tokenTypes.get(SMTLIBv2Lexer.Decimal)
+  lazy val HEX: IElementType = tokenTypes.get(SMTLIBv2Lexer.HexDecimal)
+  lazy val BINARY: IElementType = tokenTypes.get(SMTLIBv2Lexer.Binary)
+
+  def isSymbolChar(c: Char): Boolean = ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z') || ('0' <= c && c <= '9') ||
+    "~!@$%^&*_-+=<>.?/".indexOf(c) >= 0
+
+  def isLarge(length: Long): Boolean = length > SMTLIBv2ParserDefinition.largeFileThreshold
+
+  def create(large: Boolean): Lexer =
+    if (large) new SMTLIBv2FastLexer else new ANTLRLexerAdaptor(SMTLIBV2Language.INSTANCE, new SMTLIBv2Lexer(null))
+}
+
+// Picks the lexer per buffer: the ANTLR lexer for regular files and the hand-written one for files parsed as
+// command chunks, so both parsing paths see the tokens they were written against
+class SMTLIBv2SizedLexer extends LexerBase {
+  private var delegate: Lexer = SMTLIBv2FastLexer.create(large = false)
+  private var large: Boolean = false
+
+  override def start(buffer: CharSequence, startOffset: Int, endOffset: Int, initialState: Int): Unit = {
+    val l = SMTLIBv2FastLexer.isLarge(buffer.length)
+    if (l != large) {
+      large = l
+      delegate = SMTLIBv2FastLexer.create(l)
+    }
+    delegate.start(buffer, startOffset, endOffset, initialState)
+  }
+
+  override def getState: Int = delegate.getState
+
+  override def getTokenType: IElementType = delegate.getTokenType
+
+  override def getTokenStart: Int = delegate.getTokenStart
+
+  override def getTokenEnd: Int = delegate.getTokenEnd
+
+  override def advance(): Unit = delegate.advance()
+
+  override def getBufferSequence: CharSequence = delegate.getBufferSequence
+
+  override def getBufferEnd: Int = delegate.getBufferEnd
+}
+
+// Hand-written, allocation-light lexer producing the same token types as the ANTLR lexer; every token boundary is
+// a restart point (state 0), so the editor re-lexes only around an edit instead of copying the buffer into ANTLR.
+// Only used for files above the large-file threshold, where the ANTLR lexer's buffer copy dominates.
+class SMTLIBv2FastLexer extends LexerBase {
+
+  import SMTLIBv2FastLexer._
+
+  private var buffer: CharSequence = ""
+  private var endOffset: Int = 0
+  private var tokenStart: Int = 0
+  private var tokenEnd: Int = 0
+  private var tokenType: IElementType = _
+
+  override def start(buffer: CharSequence, startOffset: Int, endOffset: Int, initialState: Int): Unit = {
+    this.buffer = buffer
+    this.endOffset = endOffset
+    tokenStart = startOffset
+    tokenEnd = startOffset
+    locateToken()
+  }
+
+  override def getState: Int = 0
+
+  override def getTokenType: IElementType = tokenType
+
+  override def getTokenStart: Int = tokenStart
+
+  override def getTokenEnd: Int = tokenEnd
+
+  override def advance(): Unit = {
+    tokenStart = tokenEnd
+    locateToken()
+  }
+
+  override def getBufferSequence: CharSequence = buffer
+
+  override def getBufferEnd: Int = endOffset
+
+  private def locateToken(): Unit = {
+    if (tokenStart >= endOffset) {
+      tokenType = null
+      tokenEnd = endOffset
+      return
+    }
+    var i = tokenStart
+    val c = buffer.charAt(i)
+    i += 1
+    tokenType = c match {
+      case ' ' | '\t' | '\r' | '\n' =>
+        while (i < endOffset && Character.isWhitespace(buffer.charAt(i))) i += 1
+        WS
+      case ';' =>
+        while (i < endOffset && buffer.charAt(i) != '\n' && buffer.charAt(i) != '\r') i += 1
+        COMMENT
+      case '"' =>
+        var done = false
+        while (!done && i < endOffset) {
+          if (buffer.charAt(i) == '"') {
+            if (i + 1 < endOffset && buffer.charAt(i + 1) == '"') i += 1 else done = true
+          }
+          i += 1
+        }
+        if (done) STRING else TokenType.BAD_CHARACTER
+      case '|' =>
+        while (i < endOffset && buffer.charAt(i) != '|') i += 1
+        if (i < endOffset) {
+          i += 1
+          QUOTED_SYMBOL
+        } else TokenType.BAD_CHARACTER
+      case '(' => PAR_OPEN
+      case ')' => PAR_CLOSE
+      case '#' if i < endOffset && buffer.charAt(i) == 'b' =>
+        i += 1
+        while (i < endOffset && (buffer.charAt(i) == '0' || buffer.charAt(i) == '1')) i += 1
+        BINARY
+      case '#' if i < endOffset && buffer.charAt(i) == 'x' =>
+        i += 1
+        while (i < endOffset && Character.digit(buffer.charAt(i), 16) >= 0) i += 1
+        HEX
+      case _ if '0' <= c && c <= '9' =>
+        while (i < endOffset && Character.isDigit(buffer.charAt(i))) i += 1
+        if (i + 1 < endOffset && buffer.charAt(i) == '.' && Character.isDigit(buffer.charAt(i + 1))) {
+          i += 1
+          while (i < endOffset && Character.isDigit(buffer.charAt(i))) i += 1
+          DECIMAL
+        } else NUMERAL
+      case ':' =>
+        var j = i
+        while (j < endOffset && isSymbolChar(buffer.charAt(j))) j += 1
+        lookup(tokenStart, j) match {
+          case null => COLON
+          case t =>
+            i = j
+            t
+        }
+      case _ if isSymbolChar(c) =>
+        while (i < endOffset && isSymbolChar(buffer.charAt(i))) i += 1
+        lookup(tokenStart, i) match {
+          case null => SYMBOL
+          case t => t
+        }
+      case _ => TokenType.BAD_CHARACTER
+    }
+    tokenEnd = i
+  }
+
+  private def lookup(start: Int, end: Int): IElementType =
+    if (end - start > maxLiteralLength) null else literals.get(buffer.subSequence(start, end).toString)
+}
@@ -26,27 +26,29 @@ package org.sireum.intellij.smtlib
 
 import com.intellij.lang.ParserDefinition.SpaceRequirements
 import com.intellij.lang._
-import com.intellij.lang.annotation.{AnnotationHolder, ExternalAnnotator}
+import com.intellij.lang.annotation.{AnnotationHolder, ExternalAnnotator, HighlightSeverity}
 import com.intellij.lang.cacheBuilder.WordsScanner
 import com.intellij.lang.findUsages.FindUsagesProvider
 import com.intellij.lang.folding.{FoldingBuilderEx, FoldingDescriptor}
 import com.intellij.lexer.Lexer
 import com.intellij.openapi.editor.{DefaultLanguageHighlighterColors, Document, FoldingGroup}
-import com.intellij.openapi.editor.colors.TextAttributesKey
+import com.intellij.openapi.editor.colors.{CodeInsightColors, TextAttributesKey}
 import com.intellij.openapi.editor.colors.TextAttributesKey.createTextAttributesKey
 import com.intellij.openapi.fileTypes._
 import com.intellij.openapi.options.colors.{AttributesDescriptor, ColorDescriptor, ColorSettingsPage}
+import com.intellij.openapi.progress.ProgressManager
 import com.intellij.openapi.project.{DumbAware, Project}
 import com.intellij.openapi.util.{IconLoader, TextRange}
 import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.impl.source.tree.{CompositeElement, LeafElement}
-import com.intellij.psi.tree.{IElementType, IFileElementType, TokenSet}
+import com.intellij.psi.tree.{IElementType, IFileElementType, IReparseableElementType, TokenSet}
 import com.intellij.psi.{FileViewProvider, PsiElement, PsiElementVisitor, PsiFile}
-import org.antlr.intellij.adaptor.lexer.{ANTLRLexerAdaptor, PSIElementTypeFactory, TokenIElementType}
+import org.antlr.intellij.adaptor.lexer.{PSIElementTypeFactory, TokenIElementType}
 import org.antlr.intellij.adaptor.parser.{ANTLRParseTreeToPSIConverter, ANTLRParserAdaptor}
 import org.antlr.intellij.adaptor.psi.ANTLRPsiNode
 import org.antlr.v4.runtime.Parser
 import org.antlr.v4.runtime.tree.ParseTree
+import org.sireum.intellij.Util
 import org.sireum.smtlib._
 import org.sireum.smtlib.parser._
 
@@ -66,7 +68,8 @@ class SMTLIBV2Language extends Language("SMTLIBv2") {
 }
 
 class SMTLIBV2SyntaxHighlighterFactory extends SyntaxHighlighterFactory {
-  override def getSyntaxHighlighter(project: Project, virtualFile: VirtualFile) = new SMTLIBV2SyntaxHighlighter
+  override def getSyntaxHighlighter(project: Project, virtualFile: VirtualFile) =
+    new SMTLIBV2SyntaxHighlighter(virtualFile != null && SMTLIBv2FastLexer.isLarge(virtualFile.getLength))
 }
 
 object SMTLIBV2SyntaxHighlighter {
@@ -83,11 +86,10 @@ object SMTLIBV2SyntaxHighlighter {
 
 }
 
-class SMTLIBV2SyntaxHighlighter extends SyntaxHighlighterBase {
-  override def getHighlightingLexer: Lexer = {
-    val lexer = new SMTLIBv2Lexer(null)
-    new ANTLRLexerAdaptor(SMTLIBV2Language.INSTANCE, lexer)
-  }
+class SMTLIBV2SyntaxHighlighter(large: Boolean) extends SyntaxHighlighterBase {
+  def this() = this(false)
+
+  override def getHighlightingLexer: Lexer = SMTLIBv2FastLexer.create(large)
 
   override def getTokenHighlights(tokenType: IElementType): Array[TextAttributesKey] = {
     if (!tokenType.isInstanceOf[TokenIElementType]) return SMTLIBV2SyntaxHighlighter.EMPTY_KEYS
@@ -228,17 +230,44 @@ object SMTLIBv2ParserDefinition {
   val COMMENTS: TokenSet = PSIElementTypeFactory.createTokenSet(SMTLIBV2Language.INSTANCE, SMTLIBv2Lexer.Comment)
   val WHITESPACE: TokenSet = PSIElementTypeFactory.createTokenSet(SMTLIBV2Language.INSTANCE, SMTLIBv2Lexer.WS)
   val STRING: TokenSet = PSIElementTypeFactory.createTokenSet(SMTLIBV2Language.INSTANCE, SMTLIBv2Lexer.String)
+  val COMMAND: IReparseableElementType = new IReparseableElementType("COMMAND", SMTLIBV2Language.INSTANCE) {
+    override def isParsable(parent: ASTNode, buffer: CharSequence, fileLanguage: Language, project: Project): Boolean =
+      SMTLIBv2Scanner.commands(buffer) match {
+        case Some(Vector(c)) => c.start == 0 && c.end == buffer.length
+        case _ => false
+      }
+  }
+  val largeFileThreshold: Int = 1024 * 1024
+
+  def parseCommandChunks(root: IElementType, builder: PsiBuilder): ASTNode = {
+    val rootMarker = builder.mark()
+    while (!builder.eof()) {
+      if (builder.getTokenType == SMTLIBv2FastLexer.PAR_OPEN) {
+        val m = builder.mark()
+        var depth = 0
+        while ({
+          val t = builder.getTokenType
+          if (t == SMTLIBv2FastLexer.PAR_OPEN) depth += 1
+          else if (t == SMTLIBv2FastLexer.PAR_CLOSE) depth -= 1
+          builder.advanceLexer()
+          depth > 0 && !builder.eof()
+        }) ()
+        m.collapse(COMMAND)
+      } else {
+        builder.advanceLexer()
+      }
+    }
+    rootMarker.done(root)
+    builder.getTreeBuilt
+  }
 }
 
 class SMTLIBv2ParserDefinition extends ParserDefinition {
-  override def createLexer(project: Project): Lexer = {
-    val lexer = new SMTLIBv2Lexer(null)
-    new ANTLRLexerAdaptor(SMTLIBV2Language.INSTANCE, lexer)
-  }
+  override def createLexer(project: Project): Lexer = new SMTLIBv2SizedLexer
 
   override def createParser(project: Project): PsiParser = {
     val parser = new SMTLIBv2Parser(null)
-    val r = new ANTLRParserAdaptor(SMTLIBV2Language.INSTANCE, parser) {
+    val antlrParser = new ANTLRParserAdaptor(SMTLIBV2Language.INSTANCE, parser) {
       override protected def parse(parser: Parser, root: IElementType): ParseTree = {
         val r = if (root.isInstanceOf[IFileElementType]) parser.asInstanceOf[SMTLIBv2Parser].script
         else parser.asInstanceOf[SMTLIBv2Parser].command
@@ -247,7 +276,10 @@ class SMTLIBv2ParserDefinition extends ParserDefinition {
 
       override protected def createListener(parser: Parser, root: IElementType, builder: PsiBuilder): ANTLRParseTreeToPSIConverter = new ANTLRParseTreeToPSIConverter(language, parser, builder)
     }
-    r
+    (root: IElementType, builder: PsiBuilder) =>
+      if (root.isInstanceOf[IFileElementType] && SMTLIBv2FastLexer.isLarge(builder.getOriginalText.length))
+        SMTLIBv2ParserDefinition.parseCommandChunks(root, builder)
+      else antlrParser.parse(root, builder)
   }
 
   override def getWhitespaceTokens: TokenSet = SMTLIBv2ParserDefinition.WHITESPACE
@@ -302,23 +334,47 @@ class SMTLIBV2FileType protected extends LanguageFileType(SMTLIBV2Language.INSTA
 }
 
 object SMTLIBV2ExternalAnnotator {
-  class Issue(private[smtlib] var msg: String, private[smtlib] var offendingNode: PsiElement) {
+  class Info(private[smtlib] val text: CharSequence, private[smtlib] val outcome: SMTLIBv2Portfolio.Outcome)
+
+  class Issue(private[smtlib] var msg: String, private[smtlib] var range: TextRange, private[smtlib] var tooltip: String) {
   }
 }
 
-class SMTLIBV2ExternalAnnotator extends ExternalAnnotator[PsiFile, util.List[SMTLIBV2ExternalAnnotator.Issue]] {
-  override def collectInformation(file: PsiFile): PsiFile = file
+class SMTLIBV2ExternalAnnotator extends ExternalAnnotator[SMTLIBV2ExternalAnnotator.Info, util.List[SMTLIBV2ExternalAnnotator.Issue]] {
+  override def collectInformation(file: PsiFile): SMTLIBV2ExternalAnnotator.Info = {
+    val vfile = file.getVirtualFile
+    if (vfile == null) return null
+    Util.getPath(vfile).flatMap(path => SMTLIBv2Portfolio.outcomes.get(path.string.value)) match {
+      case Some(outcome) =>
+        val text = file.getViewProvider.getContents
+        if (SMTLIBv2Portfolio.contentHash(text) == outcome.contentHash) new SMTLIBV2ExternalAnnotator.Info(text, outcome)
+        else null
+      case _ => null
+    }
+  }
 
-  override def doAnnotate(file: PsiFile): util.List[SMTLIBV2ExternalAnnotator.Issue] = {
+  override def doAnnotate(info: SMTLIBV2ExternalAnnotator.Info): util.List[SMTLIBV2ExternalAnnotator.Issue] = {
     val issues = new util.ArrayList[SMTLIBV2ExternalAnnotator.Issue]
+    info.outcome.winnerOpt match {
+      case Some(winner) =>
+        val tooltip = info.outcome.results.mkString("<html>", "<br>", "</html>")
+        val checkSats = SMTLIBv2Scanner.commands(info.text, lenient = true).getOrElse(Vector()).filter { c =>
+          info.text.subSequence(c.start, math.min(c.end, c.start + 10)).toString == "(check-sat"
+        }
+        for ((c, answer) <- checkSats.zip(winner.answers)) {
+          issues.add(new SMTLIBV2ExternalAnnotator.Issue(s"$answer (${winner.solver}, ${winner.millis} ms)",
+            new TextRange(c.start, c.end), tooltip))
+        }
+      case _ =>
+    }
     issues
   }
 
   override def apply(file: PsiFile, issues: util.List[SMTLIBV2ExternalAnnotator.Issue], holder: AnnotationHolder): Unit = {
     import scala.jdk.CollectionConverters._
     for (issue <- issues.asScala) {
-      val range = issue.offendingNode.getTextRange
-      holder.createErrorAnnotation(range, issue.msg)
+      holder.newAnnotation(HighlightSeverity.INFORMATION, issue.msg).range(issue.range).tooltip(issue.tooltip).
+        textAttributes(CodeInsightColors.INFORMATION_ATTRIBUTES).create()
     }
   }
 }
@@ -362,38 +418,50 @@ class SMTLIBV2ASTFactory extends DefaultASTFactoryImpl {
 
 class SMTLIBV2FoldingBuilder extends FoldingBuilderEx with DumbAware {
   override def buildFoldRegions(psiElement: PsiElement, document: Document, b: Boolean): Array[FoldingDescriptor] = {
-    var r = Vector[FoldingDescriptor]()
-    for (e <- psiElement.getChildren if e.getNode.getElementType.toString == "script") {
-      for (command <- e.getChildren) {
-        val children = command.getChildren
-        val left = children(0)
-        val right = children(children.length - 1)
-        r = r :+ new FoldingDescriptor(left, new TextRange(left.getTextRange.getStartOffset,
-          right.getTextRange.getEndOffset))
+    val r = Array.newBuilder[FoldingDescriptor]
+
+    def addCommand(command: ASTNode): Unit = {
+      val range = command.getTextRange
+      if (!range.isEmpty && document.getLineNumber(range.getStartOffset) != document.getLineNumber(range.getEndOffset - 1)) {
+        r += new FoldingDescriptor(command, range)
+      }
+    }
+
+    var child = psiElement.getNode.getFirstChildNode
+    while (child != null) {
+      ProgressManager.checkCanceled()
+      child.getElementType match {
+        case SMTLIBv2ParserDefinition.COMMAND => addCommand(child)
+        case t if t.toString == "script" =>
+          var command = child.getFirstChildNode
+          while (command != null) {
+            if (command.getElementType.toString == "command") addCommand(command)
+            command = command.getTreeNext
+          }
+        case _ =>
       }
+      child = child.getTreeNext
     }
-    r.toArray
+    r.result()
   }
 
   override def isCollapsedByDefault(astNode: ASTNode): Boolean = false
 
   override def getPlaceholderText(astNode: ASTNode): String = {
-    val text = astNode.getTreeParent.getText
-    var r = Vector[Char]()
-    var i = 0
-    val len = text.length
-    while (i < len) {
-      val c = text(i)
-      if (c.isWhitespace) {
-        i = len
-      } else {
-        r = r :+ c
-        i = i + 1
-      }
+    val text = astNode.getChars
+    placeholderText(text, 0, text.length)
+  }
+
+  def placeholderText(text: CharSequence, start: Int, end: Int): String = {
+    val sb = new StringBuilder
+    var i = start
+    val limit = math.min(end, start + 80)
+    while (i < limit && !Character.isWhitespace(text.charAt(i))) {
+      sb.append(text.charAt(i))
+      i = i + 1
     }
-    r = r ++ Vector(' ', '.', '.', '.')
-    r = r :+ text(len - 1)
-    r.mkString
+    sb.append(" ...").append(text.charAt(end - 1))
+    sb.toString
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,228 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij.smtlib
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer
+import com.intellij.notification.{Notification, NotificationType}
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.progress.{ProgressIndicator, ProgressManager, Task}
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.psi.PsiManager
+import org.sireum.forms
+import org.sireum.intellij.{Exec, SireumClient, Util}
+
+import java.io.File
+import java.nio.file.{Files, Paths}
+import java.util.concurrent.{CompletableFuture, Executors, ScheduledExecutorService, TimeUnit, TimeoutException}
+import scala.collection.concurrent.TrieMap
+
+object SMTLIBv2Portfolio {
+
+  final case class Solver(name: String, command: Vector[String])
+
+  final case class SolverResult(solver: String, status: String, answers: Vector[String], millis: Long,
+                                peakKiB: Option[Long]) {
+    override def toString: String =
+      s"$solver: $status in $millis ms${peakKiB.map(kib => s", peak ${(kib + 1023) / 1024} MB").getOrElse("")}"
+  }
+
+  final case class Outcome(contentHash: Int, winnerOpt: Option[SolverResult], results: Vector[SolverResult])
+
+  val outcomes: TrieMap[String, Outcome] = TrieMap()
+
+  val answerSet: Set[String] = Set("sat", "unsat", "unknown")
+
+  val maxCapture: Int = 1024 * 1024
+
+  lazy val hasProcStatus: Boolean = Files.isReadable(Paths.get("/proc/self/status"))
+
+  lazy val samplerExecutor: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor((r: Runnable) => {
+    val t = new Thread(r, "Sireum SMT2 Memory Sampler")
+    t.setDaemon(true)
+    t
+  })
+
+  def contentHash(text: CharSequence): Int = {
+    var h = 0
+    for (i <- 0 until text.length) h = 31 * h + text.charAt(i)
+    h
+  }
+
+  def solvers(entries: Seq[(String, String)], path: String): Vector[Solver] =
+    for ((exe, args) <- entries.toVector) yield
+      Solver(new File(exe).getName, exe +: tokenize(args).filter(_ != "-in") :+ path)
+
+  // Shell-like argument splitting: whitespace separates arguments, single quotes are literal, and double quotes
+  // and backslashes escape whitespace (e.g., "-T:10 'smt.arith.solver=2'" or "--tlimit=\"1 000\"")
+  def tokenize(args: String): Vector[String] = {
+    var r = Vector[String]()
+    val sb = new StringBuilder
+    var inArg = false
+    var quote = '\u0000'
+    var i = 0
+    while (i < args.length) {
+      val c = args.charAt(i)
+      if (quote == '\'') {
+        if (c == '\'') quote = '\u0000' else sb.append(c)
+      } else if (c == '\\' && i + 1 < args.length) {
+        i += 1
+        sb.append(args.charAt(i))
+        inArg = true
+      } else if (quote == '"') {
+        if (c == '"') quote = '\u0000' else sb.append(c)
+      } else if (c == '\'' || c == '"') {
+        quote = c
+        inArg = true
+      } else if (Character.isWhitespace(c)) {
+        if (inArg) {
+          r = r :+ sb.toString
+          sb.clear()
+          inArg = false
+        }
+      } else {
+        sb.append(c)
+        inArg = true
+      }
+      i += 1
+    }
+    if (inArg) r = r :+ sb.toString
+    r
+  }
+
+  // The configured Logika timeout is per query, so the whole script gets one per (check-sat)
+  def timeoutInMs(text: CharSequence): Long = {
+    val checkSats = SMTLIBv2Scanner.commands(text, lenient = true).getOrElse(Vector()).count { c =>
+      text.subSequence(c.start, math.min(c.end, c.start + 10)).toString == "(check-sat"
+    }
+    forms.LogikaFormEx.timeout.toLong * math.max(1, checkSats)
+  }
+
+  def launch(project: Project, file: VirtualFile, path: String, text: String, solvers: Vector[Solver]): Unit = {
+    val hash = contentHash(text)
+    ProgressManager.getInstance.run(new Task.Backgroundable(project, s"Running ${solvers.map(_.name).mkString(", ")}", true) {
+      override def run(indicator: ProgressIndicator): Unit = {
+        val outcome = race(hash, solvers, Option(new File(path).getParentFile), timeoutInMs(text),
+          () => indicator.isCanceled)
+        outcomes.put(path, outcome)
+        val summary = outcome.winnerOpt match {
+          case Some(w) => s"${w.answers.mkString(", ")} by ${w.solver}"
+          case _ => "No definitive answer"
+        }
+        Util.notify(new Notification(SireumClient.groupId, s"${file.getName}: $summary",
+          outcome.results.mkString("\n"), NotificationType.INFORMATION), project, shouldExpire = true)
+        ApplicationManager.getApplication.invokeLater { () =>
+          if (!project.isDisposed && file.isValid) {
+            val psiFile = PsiManager.getInstance(project).findFile(file)
+            if (psiFile != null) DaemonCodeAnalyzer.getInstance(project).restart(psiFile)
+          }
+        }
+      }
+    })
+  }
+
+  def race(hash: Int, solvers: Vector[Solver], dir: Option[File], timeoutInMs: Long,
+           isCancelled: () => Boolean): Outcome = {
+    val n = solvers.size
+    val exec = new Exec
+    val pids = new java.util.concurrent.atomic.AtomicIntegerArray(n)
+    val peaks = new java.util.concurrent.atomic.AtomicLongArray(n)
+    val ends = new java.util.concurrent.atomic.AtomicLongArray(n)
+    val winner = new CompletableFuture[Integer]
+    val start = System.nanoTime
+    val futures = for (i <- 0 until n) yield {
+      val f = exec.start(timeoutInMs, solvers(i).command, None, dir, maxCapture, null, p => pids.set(i, p.getPID))
+      f.whenComplete { (r, _) =>
+        ends.set(i, System.nanoTime)
+        sample(i)
+        val as = answers(r)
+        if (as.nonEmpty && as.forall(_ != "unknown")) winner.complete(i)
+      }
+      f
+    }
+
+    def sample(i: Int): Unit = {
+      val pid = pids.get(i)
+      if (pid > 0 && hasProcStatus) {
+        val kib = peakKiB(pid)
+        if (kib > peaks.get(i)) peaks.set(i, kib)
+      }
+    }
+
+    val sampler = samplerExecutor.scheduleAtFixedRate({ () =>
+      for (i <- 0 until n if ends.get(i) == 0) sample(i)
+    }: Runnable, 0, 50, TimeUnit.MILLISECONDS)
+    val done = CompletableFuture.anyOf(winner, CompletableFuture.allOf(futures: _*))
+    var cancelled = false
+    while (!done.isDone && !cancelled) {
+      try done.get(100, TimeUnit.MILLISECONDS)
+      catch {
+        case _: TimeoutException => cancelled = isCancelled()
+      }
+    }
+    sampler.cancel(false)
+    for (f <- futures) f.cancel(true)
+
+    val results = for (i <- (0 until n).toVector) yield {
+      val f = futures(i)
+      val end = ends.get(i)
+      val millis = TimeUnit.NANOSECONDS.toMillis((if (end == 0) System.nanoTime else end) - start)
+      val peak = if (peaks.get(i) > 0) Some(peaks.get(i)) else None
+      val r = if (f.isCancelled) null else f.getNow(null)
+      val as = answers(r)
+      val status = r match {
+        case null => "cancelled"
+        case _ if as.nonEmpty => as.mkString(", ")
+        case Exec.StringResult(_, exitValue) => s"no answer (exit $exitValue)"
+        case Exec.ExceptionRaised(e) => s"error (${e.getMessage})"
+        case _ => "timeout"
+      }
+      SolverResult(solvers(i).name, status, as, millis, peak)
+    }
+    val winnerOpt =
+      if (winner.isDone) Some(results(winner.join().intValue))
+      else results.filter(_.answers.nonEmpty).sortBy(_.millis).headOption
+    Outcome(hash, winnerOpt, results)
+  }
+
+  def answers(r: Exec.Result): Vector[String] = r match {
+    case Exec.StringResult(s, _) => s.linesIterator.map(_.trim).filter(answerSet.contains).toVector
+    case _ => Vector()
+  }
+
+  def peakKiB(pid: Int): Long =
+    try {
+      val it = Files.readAllLines(Paths.get(s"/proc/$pid/status")).iterator
+      var r = -1L
+      while (r < 0 && it.hasNext) {
+        val line = it.next()
+        if (line.startsWith("VmHWM:")) r = line.substring(6).trim.split("\\s+")(0).toLong
+      }
+      r
+    } catch {
+      case _: Throwable => -1L
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij.smtlib
+
+object SMTLIBv2Scanner {
+
+  final case class Command(start: Int, end: Int)
+
+  def commands(text: CharSequence, isCancelled: () => Boolean = () => false,
+               lenient: Boolean = false): Option[Vector[Command]] = {
+    val r = Vector.newBuilder[Command]
+    val n = text.length
+    var depth = 0
+    var start = -1
+    var i = 0
+    while (i < n) {
+      if ((i & 0xffff) == 0 && isCancelled()) return None
+      text.charAt(i) match {
+        case ';' =>
+          while (i < n && text.charAt(i) != '\n') i += 1
+        case '"' =>
+          i += 1
+          var done = false
+          while (!done && i < n) {
+            if (text.charAt(i) == '"') {
+              if (i + 1 < n && text.charAt(i + 1) == '"') i += 1 else done = true
+            }
+            if (!done) i += 1
+          }
+          if (!done) return if (lenient) Some(r.result()) else None
+        case '|' =>
+          i += 1
+          while (i < n && text.charAt(i) != '|') i += 1
+          if (i >= n) return if (lenient) Some(r.result()) else None
+        case '(' =>
+          if (depth == 0) start = i
+          depth += 1
+        case ')' =>
+          if (depth > 0) {
+            depth -= 1
+            if (depth == 0) r += Command(start, i + 1)
+          } else if (!lenient) return None
+        case c =>
+          if (depth == 0 && !lenient && !Character.isWhitespace(c)) return None
+      }
+      i += 1
+    }
+    if (depth != 0 && !lenient) None else Some(r.result())
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.intellij
+
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.nio.file.{Files, Path}
+
+object ClientLogTest {
+
+  def eventually(cond: => Boolean): Boolean = {
+    val deadline = System.currentTimeMillis + 10000
+    while (!cond && System.currentTimeMillis < deadline) Thread.sleep(10)
+    cond
+  }
+
+  def contents(file: Path): Vector[String] =
+    if (Files.exists(file)) scala.util.Try(ClientLog.entries(file).map(_.content).toVector).getOrElse(Vector())
+    else Vector()
+
+  def withDir(f: Path => Unit): Unit = {
+    val dir = Files.createTempDirectory("client-log-test")
+    try f(dir) finally {
+      val s = Files.walk(dir)
+      try s.sorted(java.util.Comparator.reverseOrder()).forEach(p => Files.deleteIfExists(p)) finally s.close()
+    }
+  }
+}
+
+class ClientLogTest extends AnyFunSuite {
+
+  import ClientLog._
+  import ClientLogTest._
+
+  def roundTrip(e: Entry): Option[Entry] = {
+    val sb = new java.lang.StringBuilder
+    encode(e, sb)
+    assert(sb.charAt(sb.length - 1) == '\n')
+    assert(sb.indexOf("\n") == sb.length - 1)
+    decode(sb.substring(0, sb.length - 1))
+  }
+
+  test("encode/decode round-trip") {
+    for (kind <- Kind.values; truncated <- Seq(false, true);
+         content <- Seq("", "{\"type\" : \"x\"}", "a\"b\\c\nd\r\te\u0001f\u001f λ 𝔹 \"}", "\\u0041")) {
+      val e = Entry(1700000000000L, kind, content, truncated)
+      assert(roundTrip(e).contains(e), content)
+    }
+  }
+
+  test("malformed lines are skipped") {
+    assert(decode("").isEmpty)
+    assert(decode("not a log entry").isEmpty)
+    assert(decode("{\"t\":1,\"k\":\"Unknown\",\"n\":0,\"x\":false,\"c\":\"\"}").isEmpty)
+  }
+
+  test("entries are written in order") {
+    withDir { dir =>
+      val file = dir.resolve("client.log")
+      val log = new ClientLog(file, Long.MaxValue)
+      val expected = (0 until 1000).map(i => s"message $i").toVector
+      for (c <- expected) log.log(Kind.Response, c, truncated = false)
+      log.close()
+      assert(log.awaitTermination(10000))
+      assert(contents(file) == expected)
+      log.log(Kind.Response, "after close", truncated = false)
+      assert(contents(file) == expected)
+    }
+  }
+
+  test("files rotate when full and on open") {
+    withDir { dir =>
+      val file = dir.resolve("client.log")
+      def generation(n: Int): Path = file.resolveSibling(s"client.log.$n")
+      val log = new ClientLog(file, 120, generations = 2)
+      for (i <- 1 to 4) {
+        // One entry per write, so every entry after the first exceeds the size cap and rotates the file
+        log.log(Kind.Request, s"request $i " + ("x" * 50), truncated = false)
+        assert(eventually(contents(file).headOption.exists(_.startsWith(s"request $i "))), s"request $i")
+      }
+      log.close()
+      assert(log.awaitTermination(10000))
+      assert(contents(generation(1)).map(_.take(9)) == Vector("request 3"))
+      assert(contents(generation(2)).map(_.take(9)) == Vector("request 2"))
+      assert(!Files.exists(generation(3)))
+
+      val reopened = new ClientLog(file, Long.MaxValue, generations = 2)
+      reopened.log(Kind.Note, "reopened", truncated = false)
+      reopened.close()
+      assert(reopened.awaitTermination(10000))
+      assert(contents(file) == Vector("reopened"))
+      assert(contents(generation(1)).map(_.take(9)) == Vector("request 4"))
+      assert(contents(generation(2)).map(_.take(9)) == Vector("request 3"))
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.intellij
+
+import org.scalatest.funsuite.AnyFunSuite
+
+class CoverageRegionsTest extends AnyFunSuite {
+
+  def covered(regions: CoverageRegions, max: Int): Vector[Int] = (1 to max).filter(regions.contains).toVector
+
+  test("overlapping and adjacent ranges merge") {
+    val regions = new CoverageRegions
+    assert(regions.add(3, 5))
+    assert(!regions.add(4, 5))
+    assert(!regions.add(3, 3))
+    assert(regions.add(6, 8))
+    assert(regions.size == 1)
+    assert(regions.add(12, 12))
+    assert(regions.size == 2)
+    assert(regions.add(10, 10))
+    assert(regions.size == 3)
+    assert(covered(regions, 15) == Vector(3, 4, 5, 6, 7, 8, 10, 12))
+    assert(regions.add(1, 11))
+    assert(regions.size == 1)
+    assert(covered(regions, 15) == (1 to 12).toVector)
+  }
+
+  test("removal splits regions") {
+    val regions = new CoverageRegions
+    regions.add(1, 10)
+    regions.add(20, 30)
+    assert(regions.remove(4, 6))
+    assert(regions.size == 3)
+    assert(covered(regions, 12) == Vector(1, 2, 3, 7, 8, 9, 10))
+    assert(!regions.remove(11, 19))
+    assert(regions.remove(9, 25))
+    assert(covered(regions, 35) == Vector(1, 2, 3, 7, 8) ++ (26 to 30))
+    assert(regions.remove(1, 100))
+    assert(regions.size == 0)
+    assert(!regions.remove(1, 100))
+  }
+}
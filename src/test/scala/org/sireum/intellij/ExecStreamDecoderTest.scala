@@ -0,0 +1,104 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.intellij
+
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+
+object ExecStreamDecoderTest {
+
+  // Feeds bytes the way NuProcess does: unconsumed bytes stay in the buffer for the next callback
+  def decode(bytes: Array[Byte], maxCapture: Int, chunkSizes: Int*): (String, Vector[String], Boolean) = {
+    val output = new Exec.Output(maxCapture)
+    var lines = Vector[String]()
+    val decoder = new Exec.StreamDecoder(StandardCharsets.UTF_8, output, line => lines = lines :+ line)
+    val buffer = ByteBuffer.allocate(64)
+    var offset = 0
+    var chunk = 0
+    while (offset < bytes.length) {
+      val n = math.min(math.min(chunkSizes(chunk % chunkSizes.size), buffer.remaining), bytes.length - offset)
+      chunk += 1
+      buffer.put(bytes, offset, n)
+      offset += n
+      buffer.flip()
+      decoder.decode(buffer, false)
+      buffer.compact()
+    }
+    buffer.flip()
+    decoder.decode(buffer, true)
+    (output.toString, lines, output.isTruncated)
+  }
+}
+
+class ExecStreamDecoderTest extends AnyFunSuite {
+
+  import ExecStreamDecoderTest._
+
+  val text: String = "αβγ\n∀x. x → ⊤\r\n\n" + ("ü" * 100) + "\n𝔹 last"
+
+  val bytes: Array[Byte] = text.getBytes(StandardCharsets.UTF_8)
+
+  test("multi-byte characters split across chunks") {
+    for (chunk <- Seq(1, 2, 3, 5, 7, 64)) {
+      val (out, lines, truncated) = decode(bytes, Exec.defaultMaxCapture, chunk)
+      assert(out == text, s"chunk = $chunk")
+      assert(lines == text.split("\n", -1).toVector, s"chunk = $chunk")
+      assert(!truncated)
+    }
+  }
+
+  test("irregular chunk sizes") {
+    val (out, lines, _) = decode(bytes, Exec.defaultMaxCapture, 1, 4, 2, 3)
+    assert(out == text)
+    assert(lines.last == "𝔹 last")
+  }
+
+  test("trailing newline does not produce an empty last line") {
+    val (_, lines, _) = decode("a\nb\n".getBytes(StandardCharsets.UTF_8), Exec.defaultMaxCapture, 3)
+    assert(lines == Vector("a", "b"))
+  }
+
+  test("malformed input is replaced") {
+    val (out, _, _) = decode(Array[Byte]('a', 0xC3.toByte, '\n', 'b'), Exec.defaultMaxCapture, 1)
+    assert(out == "a�\nb")
+  }
+
+  test("incomplete sequence at end of input is replaced") {
+    val (out, lines, _) = decode(Array[Byte]('a', 0xE2.toByte, 0x88.toByte), Exec.defaultMaxCapture, 2)
+    assert(out == "a�")
+    assert(lines == Vector("a�"))
+  }
+
+  test("capture is truncated but lines are still reported") {
+    val (out, lines, truncated) = decode(bytes, 5, 3)
+    assert(out == text.substring(0, 5))
+    assert(truncated)
+    assert(lines == text.split("\n", -1).toVector)
+  }
+}
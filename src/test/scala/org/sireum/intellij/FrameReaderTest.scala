@@ -0,0 +1,97 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.intellij
+
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.nio.ByteBuffer
+import java.nio.channels.ReadableByteChannel
+import java.nio.charset.StandardCharsets
+
+object FrameReaderTest {
+
+  // Hands out the given bytes in chunks of the given sizes (cycling), then end-of-stream
+  final class ChunkedChannel(bytes: Array[Byte], chunkSizes: Int*) extends ReadableByteChannel {
+    private var offset = 0
+    private var chunk = 0
+    private var open = true
+
+    override def read(dst: ByteBuffer): Int = {
+      if (offset >= bytes.length) return -1
+      val size = chunkSizes(chunk % chunkSizes.size)
+      chunk += 1
+      val n = math.min(math.min(size, dst.remaining), bytes.length - offset)
+      dst.put(bytes, offset, n)
+      offset += n
+      n
+    }
+
+    override def isOpen: Boolean = open
+
+    override def close(): Unit = open = false
+  }
+
+  def frames(text: String, bufferSize: Int, chunkSizes: Int*): Vector[String] = {
+    val reader = new FrameReader(new ChunkedChannel(text.getBytes(StandardCharsets.UTF_8), chunkSizes: _*), bufferSize)
+    Iterator.continually(reader.next()).takeWhile(_ != null).toVector
+  }
+}
+
+class FrameReaderTest extends AnyFunSuite {
+
+  import FrameReaderTest._
+
+  val text: String = "{\"a\":1}\n{\"b\":\"λ → ∀\"}\r\n\n" + ("x" * 1000) + "\nlast"
+
+  val expected: Vector[String] = Vector("{\"a\":1}", "{\"b\":\"λ → ∀\"}", "", "x" * 1000, "last")
+
+  test("frames spanning read and buffer boundaries") {
+    for (bufferSize <- Seq(1, 2, 3, 7, 64, 1 << 16); chunk <- Seq(1, 2, 5, 4096)) {
+      assert(frames(text, bufferSize, chunk) == expected, s"bufferSize = $bufferSize, chunk = $chunk")
+    }
+  }
+
+  test("multi-byte characters split across reads") {
+    assert(frames("αβγ\n∀x\n", 2, 1, 3, 2) == Vector("αβγ", "∀x"))
+  }
+
+  test("zero-length reads are retried") {
+    assert(frames("a\nb\n", 4, 0, 1) == Vector("a", "b"))
+  }
+
+  test("end of stream") {
+    assert(frames("", 8, 4) == Vector())
+    assert(frames("\n", 8, 4) == Vector(""))
+    assert(frames("unterminated", 4, 3) == Vector("unterminated"))
+  }
+
+  test("bytes read") {
+    val bytes = text.getBytes(StandardCharsets.UTF_8)
+    val reader = new FrameReader(new ChunkedChannel(bytes, 5), 16)
+    while (reader.next() != null) {}
+    assert(reader.bytesRead == bytes.length)
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.intellij
+
+import org.scalatest.funsuite.AnyFunSuite
+
+class LogikaTextIndexTest extends AnyFunSuite {
+
+  val notCancelled: () => Boolean = () => false
+
+  val claims: String = "{\n  a = 1;\n  b == c;\n  at(x, 0) ≡ y;\n}"
+
+  test("claims are chunked per line") {
+    val index = LogikaTextIndex.build(claims, "claims ", notCancelled)
+    assert(index.isFilterable)
+    assert(index.size == 3)
+    assert(index.render("", index.allChunks) == "// Filtered by: \n" + claims)
+  }
+
+  test("filter by trigrams and short queries") {
+    val index = LogikaTextIndex.build(claims, "claims ", notCancelled)
+    val all = index.allChunks
+    assert(index.filter("", all, notCancelled) sameElements all)
+    assert(index.filter("b ==", all, notCancelled) sameElements Array(1))
+    assert(index.filter("= ", all, notCancelled) sameElements Array(0, 1))
+    assert(index.filter("≡ y", all, notCancelled) sameElements Array(2))
+    assert(index.filter("zzz", all, notCancelled).isEmpty)
+    assert(index.render("b ==", Array(1)) == "// Filtered by: b ==\n{\n  b == c;\n}")
+  }
+
+  test("filter narrows the given candidates") {
+    val index = LogikaTextIndex.build(claims, "claims ", notCancelled)
+    val first = index.filter("a", index.allChunks, notCancelled)
+    assert(first sameElements Array(0, 2))
+    assert(index.filter("at(", first, notCancelled) sameElements Array(2))
+    assert(index.filter("a =", Array(1, 2), notCancelled).isEmpty)
+  }
+
+  test("matches do not span chunks") {
+    val index = LogikaTextIndex.build(claims, "claims ", notCancelled)
+    assert(index.filter(";\n  b", index.allChunks, notCancelled).isEmpty)
+  }
+
+  test("trace entries extend to the next blank line") {
+    val text = "by [x] foo\nbar\n\nother\n∴ y\n"
+    val index = LogikaTextIndex.build(text, "trace ", notCancelled)
+    assert(index.size == 2)
+    assert(index.filter("bar", index.allChunks, notCancelled) sameElements Array(0))
+    assert(index.filter("other", index.allChunks, notCancelled).isEmpty)
+    assert(index.render("∴", Array(1)) == "// Filtered by: ∴\n\n∴ y\n")
+  }
+
+  test("SMT-LIB queries are chunked per command") {
+    val text = "; comment (\n(set-logic ALL)\n(assert (= x \"a)b\"))\n(check-sat)\n"
+    val index = LogikaTextIndex.build(text, "smt2 ", notCancelled)
+    assert(index.isFilterable)
+    assert(index.size == 3)
+    assert(index.filter("check", index.allChunks, notCancelled) sameElements Array(2))
+    assert(index.filter("a)b", index.allChunks, notCancelled) sameElements Array(1))
+    assert(index.filter("comment", index.allChunks, notCancelled).isEmpty)
+  }
+
+  test("unbalanced SMT-LIB text is not filterable") {
+    assert(!LogikaTextIndex.build("(assert (= x y)", "smt2 ", notCancelled).isFilterable)
+  }
+
+  test("cancellation") {
+    intercept[LogikaTextIndex.Cancelled](LogikaTextIndex.build(claims, "claims ", () => true))
+    val index = LogikaTextIndex.build(claims, "claims ", notCancelled)
+    intercept[LogikaTextIndex.Cancelled](index.filter("b ==", index.allChunks, () => true))
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.intellij
+
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicInteger}
+import scala.jdk.CollectionConverters._
+
+object ProjectVerifierTest {
+
+  import ProjectVerifier._
+
+  def job(name: String, cost: Long = 1): Job = new Job(org.sireum.Os.path(s"/project/$name.sc"), true, cost)
+
+  // Completes each job after millis; dies (without completing) on jobs accepted by dies
+  class StubWorker(self: Int, millis: Long, dies: Job => Boolean = _ => false) extends Worker {
+    val cancelled = new AtomicBoolean
+    val closed = new AtomicBoolean
+
+    def verify(job: Job): Attempt = {
+      Thread.sleep(millis)
+      val alive = !dies(job) && !cancelled.get
+      Attempt(FileResult(job.path.string.value, self, millis, 0, 0, Vector(), completed = alive), Vector(), alive)
+    }
+
+    def cancel(): Unit = cancelled.set(true)
+
+    def close(): Unit = closed.set(true)
+  }
+
+  final class Run(n: Int, jobs: Vector[Job], worker: Int => Worker, isCancelled: () => Boolean = () => false,
+                  maxAttempts: Int = defaultMaxAttempts) {
+    val reported = new ConcurrentLinkedQueue[FileResult]
+    val summary: Summary = schedule(n, jobs, worker, (r, _) => reported.add(r), isCancelled, maxAttempts)
+
+    def byPath: Map[String, FileResult] = summary.results.map(r => r.path -> r).toMap
+  }
+}
+
+class ProjectVerifierTest extends AnyFunSuite {
+
+  import ProjectVerifier._
+  import ProjectVerifierTest._
+
+  val jobs: Vector[Job] = (0 until 20).map(i => job(s"f$i")).toVector
+
+  def assertOncePerJob(run: Run): Unit = {
+    assert(run.summary.results.size == jobs.size)
+    assert(run.summary.results.map(_.path).toSet == jobs.map(_.path.string.value).toSet)
+    assert(run.reported.asScala.toVector.sortBy(_.path) == run.summary.results.sortBy(_.path))
+  }
+
+  test("an idle server steals from the busiest one") {
+    val run = new Run(2, jobs, i => new StubWorker(i, if (i == 0) 100 else 1))
+    assertOncePerJob(run)
+    assert(run.summary.incomplete == 0)
+    assert(run.summary.results.count(_.server == 1) > jobs.size / 2)
+  }
+
+  test("a job of a dead server is retried on a live one") {
+    val first = jobs.maxBy(_.cost)
+    val run = new Run(2, jobs, i => new StubWorker(i, 1, job => i == 0 && (job eq first)))
+    assertOncePerJob(run)
+    assert(run.summary.incomplete == 0)
+    assert(run.summary.results.forall(_.server == 1))
+  }
+
+  test("retries are bounded") {
+    val bad = job("bad", cost = 100)
+    val all = jobs :+ bad
+    val tries = new AtomicInteger
+    val run = new Run(3, all, i => new StubWorker(i, 1, job => (job eq bad) && {
+      tries.incrementAndGet()
+      true
+    }), maxAttempts = 2)
+    assert(run.summary.results.size == all.size)
+    assert(tries.get == 2)
+    assert(!run.byPath(bad.path.string.value).completed)
+    assert(run.summary.incomplete == 1)
+  }
+
+  test("jobs left when every server is gone are incomplete") {
+    val run = new Run(2, jobs, i => new StubWorker(i, 1, _ => true))
+    assertOncePerJob(run)
+    assert(run.summary.incomplete == jobs.size)
+  }
+
+  test("servers that cannot be reached") {
+    val run = new Run(2, jobs, _ => throw new java.io.IOException("refused"))
+    assertOncePerJob(run)
+    assert(run.summary.results.forall(r => !r.completed && r.server == -1))
+    val none = new Run(0, jobs, _ => fail())
+    assert(none.summary.incomplete == jobs.size)
+  }
+
+  test("cancellation stops the run and cancels the servers") {
+    val started = new AtomicInteger
+    val workers = new ConcurrentLinkedQueue[StubWorker]
+    val run = new Run(2, jobs, { i =>
+      val w = new StubWorker(i, 20) {
+        override def verify(job: Job): Attempt = {
+          started.incrementAndGet()
+          super.verify(job)
+        }
+      }
+      workers.add(w)
+      w
+    }, isCancelled = () => started.get >= 4)
+    assertOncePerJob(run)
+    assert(run.summary.cancelled)
+    assert(run.summary.incomplete > 0)
+    assert(workers.asScala.forall(_.closed.get))
+  }
+}
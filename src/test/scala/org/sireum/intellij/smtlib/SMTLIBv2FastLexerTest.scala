@@ -0,0 +1,87 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.intellij.smtlib
+
+import com.intellij.psi.TokenType
+import com.intellij.psi.tree.IElementType
+import org.scalatest.funsuite.AnyFunSuite
+
+object SMTLIBv2FastLexerTest {
+
+  def tokens(text: CharSequence, start: Int, end: Int): Vector[(IElementType, String)] = {
+    val lexer = new SMTLIBv2FastLexer
+    lexer.start(text, start, end, 0)
+    var r = Vector[(IElementType, String)]()
+    while (lexer.getTokenType != null) {
+      r = r :+ ((lexer.getTokenType, text.subSequence(lexer.getTokenStart, lexer.getTokenEnd).toString))
+      lexer.advance()
+    }
+    r
+  }
+
+  def tokens(text: CharSequence): Vector[(IElementType, String)] = tokens(text, 0, text.length)
+}
+
+class SMTLIBv2FastLexerTest extends AnyFunSuite {
+
+  import SMTLIBv2FastLexer._
+  import SMTLIBv2FastLexerTest._
+
+  val text: String = "(assert (foo x #b101 #xFF 1.5 7 \"s\"\"t\" |q s| :bar))\r\n; c\n"
+
+  test("token types") {
+    val ts = tokens(text)
+    assert(ts.head == (PAR_OPEN -> "("))
+    assert(ts(1)._2 == "assert" && ts(1)._1 != SYMBOL && ts(1)._1 != null)
+    assert(ts.drop(2) == Vector(
+      WS -> " ", PAR_OPEN -> "(", SYMBOL -> "foo", WS -> " ", SYMBOL -> "x", WS -> " ", BINARY -> "#b101", WS -> " ",
+      HEX -> "#xFF", WS -> " ", DECIMAL -> "1.5", WS -> " ", NUMERAL -> "7", WS -> " ", STRING -> "\"s\"\"t\"",
+      WS -> " ", QUOTED_SYMBOL -> "|q s|", WS -> " ", COLON -> ":", SYMBOL -> "bar", PAR_CLOSE -> ")",
+      PAR_CLOSE -> ")", WS -> "\r\n", COMMENT -> "; c", WS -> "\n"))
+  }
+
+  test("tokens cover the range and every token start is a restart point") {
+    val ts = tokens(text)
+    assert(ts.map(_._2).mkString == text)
+    var offset = 0
+    for (i <- ts.indices) {
+      assert(tokens(text, offset, text.length) == ts.drop(i), s"offset = $offset")
+      offset += ts(i)._2.length
+    }
+  }
+
+  test("lexing stops at the end offset") {
+    assert(tokens(text, 8, 17) == Vector(PAR_OPEN -> "(", SYMBOL -> "foo", WS -> " ", SYMBOL -> "x", WS -> " ",
+      BINARY -> "#b"))
+  }
+
+  test("unterminated tokens are bad characters") {
+    assert(tokens("\"abc") == Vector(TokenType.BAD_CHARACTER -> "\"abc"))
+    assert(tokens("|abc") == Vector(TokenType.BAD_CHARACTER -> "|abc"))
+    assert(tokens("#{") == Vector(TokenType.BAD_CHARACTER -> "#", TokenType.BAD_CHARACTER -> "{"))
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.intellij.smtlib
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.sireum.intellij.Exec
+
+class SMTLIBv2PortfolioTest extends AnyFunSuite {
+
+  import SMTLIBv2Portfolio._
+
+  test("tokenize splits on whitespace") {
+    assert(tokenize("") == Vector())
+    assert(tokenize("  \t ") == Vector())
+    assert(tokenize(" -smt2  -in\t-T:10 ") == Vector("-smt2", "-in", "-T:10"))
+  }
+
+  test("tokenize quotes and escapes") {
+    assert(tokenize("-T:10 'smt.arith.solver=2'") == Vector("-T:10", "smt.arith.solver=2"))
+    assert(tokenize("--tlimit=\"1 000\"") == Vector("--tlimit=1 000"))
+    assert(tokenize("a\\ b c") == Vector("a b", "c"))
+    assert(tokenize("a'b c'd") == Vector("ab cd"))
+    assert(tokenize("'' \"\"") == Vector("", ""))
+    assert(tokenize("'a\\b \"c\"'") == Vector("a\\b \"c\""))
+    assert(tokenize("\"a\\\"b 'c'\"") == Vector("a\"b 'c'"))
+    assert(tokenize("a\\") == Vector("a\\"))
+  }
+
+  test("solvers drop -in and append the query path") {
+    assert(solvers(Seq("/usr/bin/z3" -> "-in -smt2", "cvc5" -> "--lang smt2 -in"), "/tmp/q.smt2") == Vector(
+      Solver("z3", Vector("/usr/bin/z3", "-smt2", "/tmp/q.smt2")),
+      Solver("cvc5", Vector("cvc5", "--lang", "smt2", "/tmp/q.smt2"))))
+  }
+
+  test("answers keep only check-sat results") {
+    assert(answers(Exec.StringResult("sat\n(model)\n unsat \r\nunknown\nerror\n", 0)) == Vector("sat", "unsat", "unknown"))
+    assert(answers(Exec.Timeout) == Vector())
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ Copyright (c) 2026, Robby, Kansas State University
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ 1. Redistributions of source code must retain the above copyright notice, this
+    list of conditions and the following disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice,
+    this list of conditions and the following disclaimer in the documentation
+    and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.intellij.smtlib
+
+import org.scalatest.funsuite.AnyFunSuite
+
+class SMTLIBv2ScannerTest extends AnyFunSuite {
+
+  import SMTLIBv2Scanner._
+
+  def spans(text: String, commands: Option[Vector[Command]]): Option[Vector[String]] =
+    commands.map(_.map(c => text.substring(c.start, c.end)))
+
+  test("top-level commands") {
+    val text = "(set-logic ALL)\n ; not (a command\n(assert (= |x)| \"a)b\"\"(\"))\r\n(check-sat)"
+    assert(spans(text, commands(text)) ==
+      Some(Vector("(set-logic ALL)", "(assert (= |x)| \"a)b\"\"(\"))", "(check-sat)")))
+    assert(commands("") == Some(Vector()))
+  }
+
+  test("malformed text is rejected unless lenient") {
+    for ((text, lenient) <- Seq(
+      "(assert x" -> Vector(),
+      "x (check-sat)" -> Vector("(check-sat)"),
+      "(check-sat))" -> Vector("(check-sat)"),
+      "(check-sat) (echo \"x" -> Vector("(check-sat)"),
+      "(check-sat) (declare-fun |x" -> Vector("(check-sat)"))) {
+      assert(commands(text).isEmpty, text)
+      assert(spans(text, commands(text, lenient = true)).contains(lenient), text)
+    }
+  }
+
+  test("cancellation") {
+    assert(commands("(check-sat)", () => true).isEmpty)
+  }
+}